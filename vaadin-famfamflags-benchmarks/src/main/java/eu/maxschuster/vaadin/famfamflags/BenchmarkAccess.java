@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+/**
+ * Gives the benchmarks access to package-private helpers of the add-on that
+ * are otherwise hidden behind caches.
+ *
+ * @author Max Schuster
+ */
+public final class BenchmarkAccess {
+
+    private BenchmarkAccess() {
+    }
+
+    /**
+     * Builds the icon url of the given country code without the cache of
+     * {@link FamFamFlags#getURL()}.
+     *
+     * @param country The country code
+     * @return The icon url
+     */
+    public static String buildIconUrl(String country) {
+        return FamFamFlags.getIconUrl(country);
+    }
+
+}
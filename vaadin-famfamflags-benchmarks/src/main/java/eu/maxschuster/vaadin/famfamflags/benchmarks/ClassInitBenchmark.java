@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.benchmarks;
+
+import eu.maxschuster.vaadin.famfamflags.FamFamFlags;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the first touch of the {@link FamFamFlags} class, i.e. loading and
+ * running its static initializer.
+ *
+ * <p>
+ * Every invocation loads the add-on classes through a fresh class loader, so
+ * each one pays the full initialization cost. The Vaadin classes are shared
+ * with the parent class loader and are already initialized.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20, batchSize = 1)
+@Measurement(iterations = 50, batchSize = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class ClassInitBenchmark {
+
+    private static final String PACKAGE
+            = FamFamFlags.class.getPackage().getName() + ".";
+
+    private ClassLoader loader;
+
+    @Setup(Level.Trial)
+    public void initVaadin() {
+        // Initialize the super class outside of the measurement
+        FamFamFlags.FAM.getURL();
+    }
+
+    @Setup(Level.Invocation)
+    public void newClassLoader() {
+        loader = new AddonClassLoader(getClass().getClassLoader());
+    }
+
+    @Benchmark
+    public Object firstLookup() throws Exception {
+        return Class.forName(FamFamFlags.class.getName(), true, loader)
+                .getMethod("fromCountry", String.class)
+                .invoke(null, "FI");
+    }
+
+    /**
+     * Loads the add-on classes itself and delegates everything else to its
+     * parent.
+     */
+    private static class AddonClassLoader extends ClassLoader {
+
+        AddonClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve)
+                throws ClassNotFoundException {
+            if (!name.startsWith(PACKAGE)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> c = findLoadedClass(name);
+                if (c == null) {
+                    byte[] bytes = readClass(name);
+                    c = defineClass(name, bytes, 0, bytes.length);
+                }
+                if (resolve) {
+                    resolveClass(c);
+                }
+                return c;
+            }
+        }
+
+        private byte[] readClass(String name) throws ClassNotFoundException {
+            String resource = name.replace('.', '/') + ".class";
+            try (InputStream in = getParent().getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.benchmarks;
+
+import eu.maxschuster.vaadin.famfamflags.FamFamFlags;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures resolving the flag column of a Grid with the given number of rows,
+ * like a column generator would do it for every row.
+ *
+ * @author Max Schuster
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GridRowBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int rows;
+
+    private Locale[] locales;
+
+    @Setup
+    public void setup() {
+        List<Locale> available = new ArrayList<>();
+        for (Locale locale : Locale.getAvailableLocales()) {
+            if (!locale.getCountry().isEmpty()) {
+                available.add(locale);
+            }
+        }
+        // Fixed seed so every run sees the same rows
+        Random random = new Random(42);
+        locales = new Locale[rows];
+        for (int i = 0; i < rows; i++) {
+            locales[i] = available.get(random.nextInt(available.size()));
+        }
+    }
+
+    @Benchmark
+    public void resolveIcon(Blackhole bh) {
+        for (Locale locale : locales) {
+            bh.consume(FamFamFlags.fromLocale(locale));
+        }
+    }
+
+    @Benchmark
+    public void resolveIconUrl(Blackhole bh) {
+        for (Locale locale : locales) {
+            FamFamFlags flag = FamFamFlags.fromLocale(locale);
+            bh.consume(flag != null ? flag.getURL() : null);
+        }
+    }
+
+    @Benchmark
+    public void resolveStyleName(Blackhole bh) {
+        for (Locale locale : locales) {
+            FamFamFlags flag = FamFamFlags.fromLocale(locale);
+            bh.consume(flag != null ? flag.getStyleName() : null);
+        }
+    }
+
+}
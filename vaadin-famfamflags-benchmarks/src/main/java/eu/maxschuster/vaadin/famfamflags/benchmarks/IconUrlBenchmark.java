@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.benchmarks;
+
+import eu.maxschuster.vaadin.famfamflags.BenchmarkAccess;
+import eu.maxschuster.vaadin.famfamflags.FamFamFlags;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the string building behind the URLs and style names of the flags
+ * and compares it with the cached values returned by the flags.
+ *
+ * @author Max Schuster
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IconUrlBenchmark {
+
+    private FamFamFlags[] flags;
+
+    private String[] codes;
+
+    @Setup
+    public void setup() {
+        flags = new FamFamFlags[]{FamFamFlags.GERMANY, FamFamFlags.FINLAND,
+            FamFamFlags.UNITED_STATES, FamFamFlags.ENGLAND};
+        codes = new String[flags.length];
+        for (int i = 0; i < flags.length; i++) {
+            codes[i] = flags[i].getCountry();
+        }
+    }
+
+    @Benchmark
+    public void cachedURL(Blackhole bh) {
+        for (FamFamFlags flag : flags) {
+            bh.consume(flag.getURL());
+        }
+    }
+
+    @Benchmark
+    public void buildURL(Blackhole bh) {
+        for (String code : codes) {
+            bh.consume(BenchmarkAccess.buildIconUrl(code));
+        }
+    }
+
+    @Benchmark
+    public void cachedStyleName(Blackhole bh) {
+        for (FamFamFlags flag : flags) {
+            bh.consume(flag.getStyleName());
+        }
+    }
+
+    @Benchmark
+    public void buildStyleName(Blackhole bh) {
+        for (String code : codes) {
+            bh.consume(FamFamFlags.getStyleName(code));
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.benchmarks;
+
+import eu.maxschuster.vaadin.famfamflags.geoip.IpRangeCompiler;
+import eu.maxschuster.vaadin.famfamflags.geoip.IpRangeDatabase;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the lookup of flags by IP address in a memory-mapped range
+ * database.
+ *
+ * <p>
+ * The database is generated with 262144 IPv4 ranges (/14 blocks split into
+ * /24 networks) and 65536 IPv6 ranges, roughly the size of the public GeoIP
+ * country databases.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IpRangeBenchmark {
+
+    private static final String[] CODES = {"DE", "FI", "US", "GB", "FR",
+        "JP", "BR", "ZA", "CN", "IN", "RU", "AU"};
+
+    private static final int IPV4_RANGES = 1 << 18;
+
+    private static final int IPV6_RANGES = 1 << 16;
+
+    private File file;
+
+    private IpRangeDatabase database;
+
+    private int[] ipv4;
+
+    private String[] ipv4Text;
+
+    private String[] ipv6Text;
+
+    @Setup
+    public void setup() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < IPV4_RANGES; i++) {
+            // Every 4th /24 network is left out, so there are misses too
+            if (i % 4 != 3) {
+                int network = i << 8;
+                csv.append(network >>> 24).append('.')
+                        .append(network >>> 16 & 0xFF).append('.')
+                        .append(network >>> 8 & 0xFF).append(".0/24,")
+                        .append(CODES[i % CODES.length]).append('\n');
+            }
+        }
+        for (int i = 0; i < IPV6_RANGES; i++) {
+            csv.append("2001:").append(Integer.toHexString(i))
+                    .append("::/32,").append(CODES[i % CODES.length])
+                    .append('\n');
+        }
+        file = File.createTempFile("ip-ranges", ".bin");
+        IpRangeCompiler.compile(new StringReader(csv.toString()), file);
+        database = IpRangeDatabase.open(file);
+
+        Random random = new Random(42);
+        ipv4 = new int[16];
+        ipv4Text = new String[ipv4.length];
+        ipv6Text = new String[ipv4.length];
+        for (int i = 0; i < ipv4.length; i++) {
+            int address = random.nextInt(IPV4_RANGES << 8);
+            ipv4[i] = address;
+            ipv4Text[i] = (address >>> 24) + "." + (address >>> 16 & 0xFF)
+                    + "." + (address >>> 8 & 0xFF) + "." + (address & 0xFF);
+            ipv6Text[i] = "2001:" + Integer.toHexString(
+                    random.nextInt(IPV6_RANGES)) + ":0:"
+                    + Integer.toHexString(random.nextInt(0x10000)) + "::1";
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        database = null;
+        file.delete();
+    }
+
+    @Benchmark
+    public void resolveIpv4(Blackhole bh) {
+        for (int address : ipv4) {
+            bh.consume(database.resolveIpv4(address));
+        }
+    }
+
+    @Benchmark
+    public void resolveIpv4Text(Blackhole bh) {
+        for (String address : ipv4Text) {
+            bh.consume(database.resolve(address));
+        }
+    }
+
+    @Benchmark
+    public void resolveIpv6Text(Blackhole bh) {
+        for (String address : ipv6Text) {
+            bh.consume(database.resolve(address));
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.benchmarks;
+
+import eu.maxschuster.vaadin.famfamflags.FamFamFlags;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the lookup of flags by country code and locale.
+ *
+ * <p>
+ * Every invocation resolves a whole batch of codes so the codes can't be
+ * constant folded by the JIT.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LookupBenchmark {
+
+    /**
+     * Codes that have a flag.
+     */
+    private String[] hits;
+
+    /**
+     * Codes that don't have a flag (missing flags and garbage).
+     */
+    private String[] misses;
+
+    /**
+     * Codes that have a flag in mixed case.
+     */
+    private String[] mixedCase;
+
+    /**
+     * Codes longer than two letters.
+     */
+    private String[] longCodes;
+
+    /**
+     * Locales with a flag.
+     */
+    private Locale[] localeHits;
+
+    /**
+     * Locales without a country and with an unknown country.
+     */
+    private Locale[] localeMisses;
+
+    /**
+     * International phone numbers, including shared calling codes.
+     */
+    private String[] phoneNumbers;
+
+    @Setup
+    public void setup() {
+        // Copy the strings so the lookup can't use the interned constants
+        hits = copy("DE", "FI", "US", "GB", "FR", "JP", "BR", "ZA");
+        misses = copy("AQ", "CW", "SS", "XX", "de", "D", "", "ZZZ");
+        mixedCase = copy("de", "Fi", "uS", "gb", "fR", "jp", "Br", "za");
+        longCodes = copy("ENGLAND", "EUROPEANUNION", "SCOTLAND", "WALES");
+        localeHits = new Locale[]{Locale.GERMANY, Locale.FRANCE, Locale.US,
+            Locale.UK, Locale.JAPAN, Locale.CANADA, Locale.ITALY,
+            Locale.KOREA};
+        localeMisses = new Locale[]{Locale.GERMAN, Locale.ENGLISH,
+            Locale.ROOT, new Locale("en", "AQ")};
+        phoneNumbers = copy("+49 30 1234567", "+1 (604) 555-0100",
+                "+1 212 555 0100", "+7 701 123 4567", "0044 20 7946 0000",
+                "+358 18 12345", "+39 06 698 12345", "+81 3-1234-5678");
+    }
+
+    @Benchmark
+    public void fromCountryHit(Blackhole bh) {
+        for (String code : hits) {
+            bh.consume(FamFamFlags.fromCountry(code));
+        }
+    }
+
+    @Benchmark
+    public void fromCountryMiss(Blackhole bh) {
+        for (String code : misses) {
+            bh.consume(FamFamFlags.fromCountry(code));
+        }
+    }
+
+    @Benchmark
+    public void fromCountryLongCode(Blackhole bh) {
+        for (String code : longCodes) {
+            bh.consume(FamFamFlags.fromCountry(code));
+        }
+    }
+
+    @Benchmark
+    public void fromCountryUpperCased(Blackhole bh) {
+        // What callers have to do for mixed case input with fromCountry(String)
+        for (String code : mixedCase) {
+            bh.consume(FamFamFlags.fromCountry(code.toUpperCase(Locale.US)));
+        }
+    }
+
+    @Benchmark
+    public void fromCountryIgnoreCaseCharSequence(Blackhole bh) {
+        for (String code : mixedCase) {
+            bh.consume(FamFamFlags.fromCountryIgnoreCase(code));
+        }
+    }
+
+    @Benchmark
+    public void fromCountryIgnoreCaseChars(Blackhole bh) {
+        for (String code : mixedCase) {
+            bh.consume(FamFamFlags.fromCountryIgnoreCase(code.charAt(0),
+                    code.charAt(1)));
+        }
+    }
+
+    @Benchmark
+    public void fromLocaleHit(Blackhole bh) {
+        for (Locale locale : localeHits) {
+            bh.consume(FamFamFlags.fromLocale(locale));
+        }
+    }
+
+    @Benchmark
+    public void fromLocaleMiss(Blackhole bh) {
+        for (Locale locale : localeMisses) {
+            bh.consume(FamFamFlags.fromLocale(locale));
+        }
+    }
+
+    @Benchmark
+    public void fromPhoneNumber(Blackhole bh) {
+        for (String number : phoneNumbers) {
+            bh.consume(FamFamFlags.fromPhoneNumber(number));
+        }
+    }
+
+    private static String[] copy(String... codes) {
+        String[] copies = new String[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            copies[i] = new String(codes[i]);
+        }
+        return copies;
+    }
+
+}
@@ -2,6 +2,7 @@ package eu.maxschuster.vaadin.famfamflags.demo.v7;
 
 import com.vaadin.annotations.PreserveOnRefresh;
 import com.vaadin.annotations.Push;
+import com.vaadin.annotations.StyleSheet;
 import javax.servlet.annotation.WebServlet;
 
 import com.vaadin.annotations.Theme;
@@ -14,11 +15,11 @@ import com.vaadin.server.Page;
 import com.vaadin.server.Resource;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinServlet;
-import com.vaadin.ui.Image;
 import com.vaadin.ui.Notification;
 import com.vaadin.ui.Table;
 import com.vaadin.ui.UI;
 import eu.maxschuster.vaadin.famfamflags.FamFamFlags;
+import eu.maxschuster.vaadin.famfamflags.FlagTableColumn;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -30,6 +31,7 @@ import org.vaadin.viritin.ListContainer;
 @PreserveOnRefresh
 @Push
 @Viewport("width=device-width, initial-scale=1.0, user-scalable=no")
+@StyleSheet(FamFamFlags.SPRITE_STYLESHEET)
 public class DemoUI extends UI {
 
     @WebServlet(value = "/*", asyncSupported = true)
@@ -52,7 +54,7 @@ public class DemoUI extends UI {
         
         Table table = layout.availableLocales;
         table.setContainerDataSource(localeRowContainer);
-        table.addGeneratedColumn("_icon", this::generateIconCell);
+        FlagTableColumn.addTo(table, "_icon", this::getItemFlag);
         table.setVisibleColumns("_icon", "displayCountry", "displayLanguage", "countryCode");
         table.setColumnHeaders("Flag", "Country", "Language", "ISO 3166");
         table.setSelectable(true);
@@ -67,9 +69,9 @@ public class DemoUI extends UI {
         return icon;
     }
     
-    private Object generateIconCell(Table source, Object itemId, Object columnId) {
+    private FamFamFlags getItemFlag(Object itemId) {
         LocaleRow row = (LocaleRow) itemId;
-        return new Image(null, row.getIcon());
+        return FamFamFlags.fromLocale(row.getLocale());
     }
 
     private void localeChanged(Property.ValueChangeEvent event) {
@@ -2,6 +2,7 @@ package eu.maxschuster.vaadin.famfamflags.demo;
 
 import com.vaadin.annotations.PreserveOnRefresh;
 import com.vaadin.annotations.Push;
+import com.vaadin.annotations.StyleSheet;
 import javax.servlet.annotation.WebServlet;
 
 import com.vaadin.annotations.Theme;
@@ -15,8 +16,8 @@ import com.vaadin.server.VaadinServlet;
 import com.vaadin.ui.Grid;
 import com.vaadin.ui.Notification;
 import com.vaadin.ui.UI;
-import com.vaadin.ui.renderers.ImageRenderer;
 import eu.maxschuster.vaadin.famfamflags.FamFamFlags;
+import eu.maxschuster.vaadin.famfamflags.v8.FlagRenderer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -26,6 +27,7 @@ import java.util.Locale;
 @PreserveOnRefresh
 @Push
 @Viewport("width=device-width, initial-scale=1.0, user-scalable=no")
+@StyleSheet(FamFamFlags.SPRITE_STYLESHEET)
 public class DemoUI extends UI {
 
     @WebServlet(value = "/*", asyncSupported = true)
@@ -48,7 +50,8 @@ public class DemoUI extends UI {
         grid.asSingleSelect().addValueChangeListener(this::localeChanged);
         grid.setItems(localeRows);
         
-        grid.addColumn(LocaleRow::getIcon, new ImageRenderer()).setCaption("Flag");
+        grid.addColumn(row -> FamFamFlags.fromLocale(row.getLocale()),
+                new FlagRenderer<>()).setCaption("Flag");
         grid.addColumn(LocaleRow::getDisplayCountry).setCaption("Country");
         grid.addColumn(LocaleRow::getDisplayLanguage).setCaption("Language");
         grid.addColumn(LocaleRow::getCountryCode).setCaption("ISO 3166");
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.geoip;
+
+/**
+ * Parses textual IPv4 and IPv6 addresses without creating objects.
+ *
+ * <p>
+ * Unlike {@link java.net.InetAddress#getByName(java.lang.String)} these
+ * methods never fall back to a DNS lookup, anything that isn't an address
+ * literal is rejected.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+final class IpAddresses {
+
+    private IpAddresses() {
+    }
+
+    /**
+     * Parses a dotted IPv4 address (e.g. <code>192.0.2.1</code>).
+     *
+     * @param s The text
+     * @param start The index of the first character
+     * @param end The index after the last character
+     * @return The address as an unsigned 32 bit value or <code>-1</code> if the
+     * text isn't a valid address
+     */
+    static long parseIpv4(CharSequence s, int start, int end) {
+        long address = 0;
+        int octets = 0;
+        int i = start;
+        while (i < end) {
+            int octetStart = i;
+            int octet = 0;
+            while (i < end && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+                octet = octet * 10 + (s.charAt(i) - '0');
+                i++;
+                if (i - octetStart > 3) {
+                    return -1;
+                }
+            }
+            if (i == octetStart || octet > 255 || ++octets > 4) {
+                return -1;
+            }
+            address = address << 8 | octet;
+            if (i < end) {
+                if (s.charAt(i) != '.' || ++i == end) {
+                    return -1;
+                }
+            }
+        }
+        return octets == 4 ? address : -1;
+    }
+
+    /**
+     * Parses an IPv6 address (e.g. <code>2001:db8::1</code> or
+     * <code>::ffff:192.0.2.1</code>).
+     *
+     * @param s The text
+     * @param start The index of the first character
+     * @param end The index after the last character
+     * @param out Receives the upper 64 bits at index 0 and the lower 64 bits
+     * at index 1
+     * @return {@code true} if the text is a valid address
+     */
+    static boolean parseIpv6(CharSequence s, int start, int end, long[] out) {
+        long headHi = 0;
+        long headLo = 0;
+        int headGroups = 0;
+        long tailHi = 0;
+        long tailLo = 0;
+        int tailGroups = 0;
+        boolean compressed = false;
+        int i = start;
+        if (end - start >= 2 && s.charAt(i) == ':') {
+            if (s.charAt(i + 1) != ':') {
+                return false;
+            }
+            compressed = true;
+            i += 2;
+        }
+        while (i < end) {
+            int groupStart = i;
+            int group = 0;
+            int digit;
+            while (i < end && (digit = hexDigit(s.charAt(i))) >= 0) {
+                group = group << 4 | digit;
+                i++;
+            }
+            int groups = 1;
+            long value = group;
+            if (i < end && s.charAt(i) == '.') {
+                // Embedded IPv4 address, must be the last part
+                value = parseIpv4(s, groupStart, end);
+                if (value < 0) {
+                    return false;
+                }
+                groups = 2;
+                i = end;
+            } else if (i == groupStart || i - groupStart > 4) {
+                return false;
+            }
+            if (compressed) {
+                for (int g = 0; g < groups; g++) {
+                    tailHi = tailHi << 16 | tailLo >>> 48;
+                    tailLo <<= 16;
+                }
+                tailLo |= value;
+                tailGroups += groups;
+            } else {
+                for (int g = 0; g < groups; g++) {
+                    headHi = headHi << 16 | headLo >>> 48;
+                    headLo <<= 16;
+                }
+                headLo |= value;
+                headGroups += groups;
+            }
+            if (i == end) {
+                break;
+            }
+            if (s.charAt(i++) != ':' || i == end) {
+                return false;
+            }
+            if (s.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            }
+        }
+        if (compressed ? headGroups + tailGroups > 7 : headGroups != 8) {
+            return false;
+        }
+        for (int g = headGroups + tailGroups; g < 8; g++) {
+            headHi = headHi << 16 | headLo >>> 48;
+            headLo <<= 16;
+        }
+        // Make room for the tail groups
+        for (int g = 0; g < tailGroups; g++) {
+            headHi = headHi << 16 | headLo >>> 48;
+            headLo <<= 16;
+        }
+        out[0] = headHi | tailHi;
+        out[1] = headLo | tailLo;
+        return true;
+    }
+
+    /**
+     * Gets the value of a hexadecimal ASCII digit.
+     *
+     * @param c The character
+     * @return The value or <code>-1</code> if it isn't a hexadecimal digit
+     */
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.geoip;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Converts a CSV file of IP ranges into the binary file read by the
+ * {@link IpRangeDatabase}.
+ *
+ * <p>
+ * Every line of the CSV file describes one range, either as
+ * <code>first,last,CC</code> (e.g. <code>1.0.0.0,1.0.0.255,AU</code>) or as
+ * <code>network/prefix,CC</code> (e.g. <code>2001:db8::/32,DE</code>).
+ * Values may be quoted, empty lines and lines starting with <code>#</code>
+ * are ignored, a header in the first line is skipped. Ranges without a
+ * 2-letter country code (like <code>-</code> or <code>A1</code>) are
+ * dropped, adjacent ranges of the same country are merged.
+ * </p>
+ *
+ * <p>
+ * <b>Usage:</b><br><br>
+ * <code>
+ * java -jar vaadin-famfamflags-geoip.jar ip-ranges.csv ip-ranges.bin<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class IpRangeCompiler {
+
+    private IpRangeCompiler() {
+    }
+
+    /**
+     * Converts a CSV file into a range database.
+     *
+     * @param args The CSV file (UTF-8) and the database file to write
+     * @throws IOException If the CSV file is invalid or a file can't be
+     * read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException(
+                    "Usage: IpRangeCompiler <csv file> <database file>");
+        }
+        Reader reader = new InputStreamReader(
+                new FileInputStream(args[0]), "UTF-8");
+        int count;
+        try {
+            count = compile(reader, new File(args[1]));
+        } finally {
+            reader.close();
+        }
+        System.out.println("Wrote " + count + " ranges to " + args[1]);
+    }
+
+    /**
+     * Converts CSV data into a range database.
+     *
+     * @param csv The CSV data
+     * @param database The database file to write
+     * @return The number of written ranges
+     * @throws IOException If the CSV data is invalid or the file can't be
+     * written
+     */
+    public static int compile(Reader csv, File database) throws IOException {
+        List<Range> ipv4 = new ArrayList<Range>();
+        List<Range> ipv6 = new ArrayList<Range>();
+        BufferedReader reader = new BufferedReader(csv);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            Range range;
+            try {
+                range = parse(line.split(","));
+            } catch (IllegalArgumentException e) {
+                if (lineNumber == 1) {
+                    // Header
+                    continue;
+                }
+                throw new IOException("Line " + lineNumber + ": "
+                        + e.getMessage());
+            }
+            if (range != null) {
+                (range.ipv6 ? ipv6 : ipv4).add(range);
+            }
+        }
+        ipv4 = merge(ipv4);
+        ipv6 = merge(ipv6);
+        write(ipv4, ipv6, database);
+        return ipv4.size() + ipv6.size();
+    }
+
+    /**
+     * Parses the columns of a CSV line.
+     *
+     * @param columns The columns
+     * @return The range or {@code null} if it has no 2-letter country code
+     * @throws IllegalArgumentException If the line is invalid
+     */
+    private static Range parse(String[] columns) {
+        if (columns.length < 2) {
+            throw new IllegalArgumentException("Too few columns");
+        }
+        String first = unquote(columns[0]);
+        Range range;
+        String code;
+        int slash = first.indexOf('/');
+        if (slash >= 0) {
+            long[] network = parseAddress(first.substring(0, slash));
+            boolean ipv6 = network.length == 2;
+            int prefix = parsePrefix(first.substring(slash + 1), ipv6);
+            range = ipv6 ? Range.ipv6(network, prefix)
+                    : Range.ipv4(network[0], prefix);
+            code = unquote(columns[1]);
+        } else {
+            if (columns.length < 3) {
+                throw new IllegalArgumentException("Too few columns");
+            }
+            long[] start = parseAddress(first);
+            long[] end = parseAddress(unquote(columns[1]));
+            if (start.length != end.length) {
+                throw new IllegalArgumentException(
+                        "Range mixes IPv4 and IPv6");
+            }
+            range = start.length == 2
+                    ? new Range(true, start[0], start[1], end[0], end[1])
+                    : new Range(false, 0, start[0], 0, end[0]);
+            code = unquote(columns[2]);
+        }
+        if (range.compareStart(range.endHigh, range.endLow) > 0) {
+            throw new IllegalArgumentException("Range ends before it starts");
+        }
+        if (code.length() != 2 || !isLetter(code.charAt(0))
+                || !isLetter(code.charAt(1))) {
+            return null;
+        }
+        range.code = code.toUpperCase(Locale.US);
+        return range.toIpv4();
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z';
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"")
+                && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+
+    /**
+     * Parses an address literal.
+     *
+     * @param text The address literal
+     * @return A single IPv4 value or the upper and lower bits of an IPv6
+     * address
+     * @throws IllegalArgumentException If the text isn't an address literal
+     */
+    private static long[] parseAddress(String text) {
+        if (text.indexOf(':') >= 0) {
+            long[] address = new long[2];
+            if (IpAddresses.parseIpv6(text, 0, text.length(), address)) {
+                return address;
+            }
+        } else {
+            long address = IpAddresses.parseIpv4(text, 0, text.length());
+            if (address >= 0) {
+                return new long[]{address};
+            }
+        }
+        throw new IllegalArgumentException("Invalid address \"" + text + "\"");
+    }
+
+    private static int parsePrefix(String text, boolean ipv6) {
+        int prefix;
+        try {
+            prefix = Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid prefix \"" + text + "\"");
+        }
+        if (prefix < 0 || prefix > (ipv6 ? 128 : 32)) {
+            throw new IllegalArgumentException("Invalid prefix \"" + text + "\"");
+        }
+        return prefix;
+    }
+
+    /**
+     * Sorts the ranges, rejects overlaps and merges adjacent ranges of the
+     * same country.
+     *
+     * @param ranges The ranges
+     * @return The sorted and merged ranges
+     * @throws IOException If ranges overlap
+     */
+    private static List<Range> merge(List<Range> ranges) throws IOException {
+        Collections.sort(ranges);
+        List<Range> merged = new ArrayList<Range>(ranges.size());
+        Range previous = null;
+        for (Range range : ranges) {
+            if (previous != null) {
+                if (range.compareStart(previous.endHigh, previous.endLow) <= 0) {
+                    throw new IOException("Overlapping ranges " + previous
+                            + " and " + range);
+                }
+                if (previous.code.equals(range.code)
+                        && previous.isFollowedBy(range)) {
+                    previous.endHigh = range.endHigh;
+                    previous.endLow = range.endLow;
+                    continue;
+                }
+            }
+            merged.add(range);
+            previous = range;
+        }
+        return merged;
+    }
+
+    /**
+     * Writes the database file.
+     *
+     * @param ipv4 The sorted IPv4 ranges
+     * @param ipv6 The sorted IPv6 ranges
+     * @param database The database file
+     * @throws IOException If writing fails
+     */
+    private static void write(List<Range> ipv4, List<Range> ipv6,
+            File database) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(database)));
+        try {
+            out.writeInt(IpRangeDatabase.MAGIC);
+            out.writeInt(IpRangeDatabase.VERSION);
+            out.writeInt(ipv4.size());
+            out.writeInt(ipv6.size());
+            // Sign bits are flipped, so the reader can compare signed values
+            for (Range range : ipv4) {
+                out.writeInt((int) range.startLow ^ Integer.MIN_VALUE);
+            }
+            for (Range range : ipv4) {
+                out.writeInt((int) range.endLow ^ Integer.MIN_VALUE);
+            }
+            for (Range range : ipv6) {
+                out.writeLong(range.startHigh ^ Long.MIN_VALUE);
+                out.writeLong(range.startLow ^ Long.MIN_VALUE);
+            }
+            for (Range range : ipv6) {
+                out.writeLong(range.endHigh ^ Long.MIN_VALUE);
+                out.writeLong(range.endLow ^ Long.MIN_VALUE);
+            }
+            for (Range range : ipv4) {
+                out.writeByte(range.code.charAt(0));
+                out.writeByte(range.code.charAt(1));
+            }
+            for (Range range : ipv6) {
+                out.writeByte(range.code.charAt(0));
+                out.writeByte(range.code.charAt(1));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * A single range of the CSV file. IPv4 addresses are stored in the lower
+     * bits.
+     */
+    private static final class Range implements Comparable<Range> {
+
+        private final boolean ipv6;
+
+        private final long startHigh;
+
+        private final long startLow;
+
+        private long endHigh;
+
+        private long endLow;
+
+        private String code;
+
+        Range(boolean ipv6, long startHigh, long startLow, long endHigh,
+                long endLow) {
+            this.ipv6 = ipv6;
+            this.startHigh = startHigh;
+            this.startLow = startLow;
+            this.endHigh = endHigh;
+            this.endLow = endLow;
+        }
+
+        static Range ipv4(long network, int prefix) {
+            long hostMask = prefix == 0 ? 0xFFFFFFFFL : (1L << (32 - prefix)) - 1;
+            long start = network & ~hostMask;
+            return new Range(false, 0, start, 0, start | hostMask);
+        }
+
+        static Range ipv6(long[] network, int prefix) {
+            long highMask = prefix >= 64 ? 0 : prefix == 0 ? -1L
+                    : -1L >>> prefix;
+            long lowMask = prefix >= 128 ? 0 : prefix <= 64 ? -1L
+                    : -1L >>> (prefix - 64);
+            long startHigh = network[0] & ~highMask;
+            long startLow = network[1] & ~lowMask;
+            return new Range(true, startHigh, startLow, startHigh | highMask,
+                    startLow | lowMask);
+        }
+
+        /**
+         * Converts a range inside of <code>::ffff:0:0/96</code> into an IPv4
+         * range.
+         *
+         * @return The IPv4 range or this range
+         */
+        Range toIpv4() {
+            if (ipv6 && startHigh == 0 && endHigh == 0
+                    && startLow >>> 32 == 0xFFFFL && endLow >>> 32 == 0xFFFFL) {
+                Range range = new Range(false, 0, startLow & 0xFFFFFFFFL, 0,
+                        endLow & 0xFFFFFFFFL);
+                range.code = code;
+                return range;
+            }
+            return this;
+        }
+
+        /**
+         * Compares the start of this range with the given address.
+         */
+        int compareStart(long high, long low) {
+            int result = compareUnsigned(startHigh, high);
+            return result != 0 ? result : compareUnsigned(startLow, low);
+        }
+
+        /**
+         * Checks if the given range starts right after this one.
+         */
+        boolean isFollowedBy(Range next) {
+            long low = endLow + 1;
+            long high = low == 0 ? endHigh + 1 : endHigh;
+            if (!ipv6 && low > 0xFFFFFFFFL) {
+                return false;
+            }
+            return next.startHigh == high && next.startLow == low;
+        }
+
+        private static int compareUnsigned(long a, long b) {
+            long x = a ^ Long.MIN_VALUE;
+            long y = b ^ Long.MIN_VALUE;
+            return x < y ? -1 : x == y ? 0 : 1;
+        }
+
+        @Override
+        public int compareTo(Range o) {
+            return compareStart(o.startHigh, o.startLow);
+        }
+
+        @Override
+        public String toString() {
+            return Long.toHexString(startHigh) + ":" + Long.toHexString(startLow)
+                    + "-" + Long.toHexString(endHigh) + ":"
+                    + Long.toHexString(endLow) + " " + code;
+        }
+
+    }
+
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.geoip;
+
+import eu.maxschuster.vaadin.famfamflags.FamFamFlags;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Resolves IPv4 and IPv6 addresses to {@link FamFamFlags} from a local,
+ * memory-mapped range database.
+ *
+ * <p>
+ * The database is created from a CSV file with the {@link IpRangeCompiler}.
+ * It stores the ranges sorted by their first address, a lookup is a binary
+ * search over the mapped file. No objects are created by the lookups (except
+ * for {@link #resolve(java.net.InetAddress)}, which has to copy the address),
+ * no network access is needed and instances can be shared by all threads.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * // Once, e.g. in a ServletContextListener<br>
+ * IpRangeDatabase database = IpRangeDatabase.open(new File("ip-ranges.bin"));<br>
+ * ...<br>
+ * FamFamFlags flag = database.resolve(request.getRemoteAddr());<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class IpRangeDatabase {
+
+    /**
+     * Marks a range database file (<code>"FFIP"</code>).
+     */
+    static final int MAGIC = 0x46464950;
+
+    /**
+     * Version of the file format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the file header (magic, version and both range counts).
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * Size of a single IPv4 range (first and last address, country code).
+     */
+    static final int IPV4_RANGE_SIZE = 4 + 4 + 2;
+
+    /**
+     * Size of a single IPv6 range (first and last address, country code).
+     */
+    static final int IPV6_RANGE_SIZE = 16 + 16 + 2;
+
+    /**
+     * Scratch space of {@link #resolve(java.lang.CharSequence)} for parsed
+     * IPv6 addresses.
+     */
+    private static final ThreadLocal<long[]> IPV6_ADDRESS
+            = new ThreadLocal<long[]>() {
+                @Override
+                protected long[] initialValue() {
+                    return new long[2];
+                }
+            };
+
+    /**
+     * First address of each IPv4 range (sign bit flipped)
+     */
+    private final IntBuffer ipv4Starts;
+
+    /**
+     * Last address of each IPv4 range (sign bit flipped)
+     */
+    private final IntBuffer ipv4Ends;
+
+    /**
+     * First address of each IPv6 range as pairs of longs (sign bits flipped)
+     */
+    private final LongBuffer ipv6Starts;
+
+    /**
+     * Last address of each IPv6 range as pairs of longs (sign bits flipped)
+     */
+    private final LongBuffer ipv6Ends;
+
+    /**
+     * The ASCII country code of each IPv4 range
+     */
+    private final ByteBuffer ipv4Codes;
+
+    /**
+     * The ASCII country code of each IPv6 range
+     */
+    private final ByteBuffer ipv6Codes;
+
+    /**
+     * Number of IPv4 ranges
+     */
+    private final int ipv4Count;
+
+    /**
+     * Number of IPv6 ranges
+     */
+    private final int ipv6Count;
+
+    private IpRangeDatabase(ByteBuffer buffer, int ipv4Count, int ipv6Count) {
+        this.ipv4Count = ipv4Count;
+        this.ipv6Count = ipv6Count;
+        int offset = HEADER_SIZE;
+        ipv4Starts = slice(buffer, offset, ipv4Count * 4).asIntBuffer();
+        offset += ipv4Count * 4;
+        ipv4Ends = slice(buffer, offset, ipv4Count * 4).asIntBuffer();
+        offset += ipv4Count * 4;
+        ipv6Starts = slice(buffer, offset, ipv6Count * 16).asLongBuffer();
+        offset += ipv6Count * 16;
+        ipv6Ends = slice(buffer, offset, ipv6Count * 16).asLongBuffer();
+        offset += ipv6Count * 16;
+        ipv4Codes = slice(buffer, offset, ipv4Count * 2);
+        offset += ipv4Count * 2;
+        ipv6Codes = slice(buffer, offset, ipv6Count * 2);
+    }
+
+    /**
+     * Maps the given database file into memory.
+     *
+     * <p>
+     * The file must not be modified while it is mapped. Write updates to a new
+     * file and open that one instead. The mapping is released once the
+     * returned instance has been garbage collected.
+     * </p>
+     *
+     * @param file The database file created by the {@link IpRangeCompiler}
+     * @return The database
+     * @throws IOException If the file can't be read or isn't a range database
+     */
+    public static IpRangeDatabase open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        MappedByteBuffer buffer;
+        try {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() < HEADER_SIZE
+                    || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a range database: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        } finally {
+            // The mapping stays valid after the file has been closed
+            raf.close();
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a range database: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported range database version "
+                    + buffer.getInt(4) + ": " + file);
+        }
+        int ipv4Count = buffer.getInt(8);
+        int ipv6Count = buffer.getInt(12);
+        long expected = HEADER_SIZE + (long) ipv4Count * IPV4_RANGE_SIZE
+                + (long) ipv6Count * IPV6_RANGE_SIZE;
+        if (ipv4Count < 0 || ipv6Count < 0 || expected != buffer.capacity()) {
+            throw new IOException("Corrupt range database: " + file);
+        }
+        return new IpRangeDatabase(buffer, ipv4Count, ipv6Count);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset,
+            int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.limit(offset + length);
+        return duplicate.slice();
+    }
+
+    /**
+     * Resolves a textual IPv4 or IPv6 address (e.g. the result of
+     * <code>ServletRequest.getRemoteAddr()</code>).
+     *
+     * @param address The address literal. Host names are not resolved.
+     * @return The {@link FamFamFlags} instance or {@code null} if the address
+     * is invalid, not inside of a known range or the country has no flag
+     */
+    public FamFamFlags resolve(CharSequence address) {
+        if (address == null) {
+            return null;
+        }
+        int length = address.length();
+        for (int i = 0; i < length; i++) {
+            if (address.charAt(i) == ':') {
+                long[] ipv6 = IPV6_ADDRESS.get();
+                if (!IpAddresses.parseIpv6(address, 0, length, ipv6)) {
+                    return null;
+                }
+                return resolveIpv6(ipv6[0], ipv6[1]);
+            }
+        }
+        long ipv4 = IpAddresses.parseIpv4(address, 0, length);
+        return ipv4 < 0 ? null : resolveIpv4((int) ipv4);
+    }
+
+    /**
+     * Resolves an IPv4 or IPv6 address.
+     *
+     * @param address The address
+     * @return The {@link FamFamFlags} instance or {@code null} if the address
+     * isn't inside of a known range or the country has no flag
+     */
+    public FamFamFlags resolve(InetAddress address) {
+        return address == null ? null : resolve(address.getAddress());
+    }
+
+    /**
+     * Resolves a raw IPv4 (4 bytes) or IPv6 (16 bytes) address in network
+     * byte order.
+     *
+     * @param address The address
+     * @return The {@link FamFamFlags} instance or {@code null} if the address
+     * has another length, isn't inside of a known range or the country has no
+     * flag
+     */
+    public FamFamFlags resolve(byte[] address) {
+        if (address == null) {
+            return null;
+        }
+        if (address.length == 4) {
+            return resolveIpv4(toInt(address, 0));
+        } else if (address.length == 16) {
+            return resolveIpv6(
+                    (long) toInt(address, 0) << 32 | toInt(address, 4) & 0xFFFFFFFFL,
+                    (long) toInt(address, 8) << 32 | toInt(address, 12) & 0xFFFFFFFFL);
+        }
+        return null;
+    }
+
+    private static int toInt(byte[] b, int offset) {
+        return (b[offset] & 0xFF) << 24 | (b[offset + 1] & 0xFF) << 16
+                | (b[offset + 2] & 0xFF) << 8 | b[offset + 3] & 0xFF;
+    }
+
+    /**
+     * Resolves an IPv4 address.
+     *
+     * @param address The address (e.g. <code>0xC0000201</code> for
+     * <code>192.0.2.1</code>)
+     * @return The {@link FamFamFlags} instance or {@code null} if the address
+     * isn't inside of a known range or the country has no flag
+     */
+    public FamFamFlags resolveIpv4(int address) {
+        int key = address ^ Integer.MIN_VALUE;
+        // Find the last range that starts at or before the address
+        int low = 0;
+        int high = ipv4Count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ipv4Starts.get(mid) <= key) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (high < 0 || ipv4Ends.get(high) < key) {
+            return null;
+        }
+        return flag(ipv4Codes, high);
+    }
+
+    /**
+     * Resolves an IPv6 address. IPv4-mapped addresses
+     * (<code>::ffff:0:0/96</code>) are resolved as IPv4 addresses.
+     *
+     * @param high The upper 64 bits of the address
+     * @param low The lower 64 bits of the address
+     * @return The {@link FamFamFlags} instance or {@code null} if the address
+     * isn't inside of a known range or the country has no flag
+     */
+    public FamFamFlags resolveIpv6(long high, long low) {
+        if (high == 0 && low >>> 32 == 0xFFFFL) {
+            return resolveIpv4((int) low);
+        }
+        long keyHigh = high ^ Long.MIN_VALUE;
+        long keyLow = low ^ Long.MIN_VALUE;
+        int first = 0;
+        int last = ipv6Count - 1;
+        while (first <= last) {
+            int mid = (first + last) >>> 1;
+            if (compare(ipv6Starts, mid, keyHigh, keyLow) <= 0) {
+                first = mid + 1;
+            } else {
+                last = mid - 1;
+            }
+        }
+        if (last < 0 || compare(ipv6Ends, last, keyHigh, keyLow) < 0) {
+            return null;
+        }
+        return flag(ipv6Codes, last);
+    }
+
+    /**
+     * Compares an address of the given buffer with the given address.
+     *
+     * @param addresses The addresses as pairs of longs (sign bits flipped)
+     * @param index The index of the address
+     * @param high The upper 64 bits of the other address (sign bit flipped)
+     * @param low The lower 64 bits of the other address (sign bit flipped)
+     * @return A negative number, zero or a positive number if the address of
+     * the buffer is lower, equal or higher
+     */
+    private static int compare(LongBuffer addresses, int index, long high,
+            long low) {
+        long h = addresses.get(index * 2);
+        if (h != high) {
+            return h < high ? -1 : 1;
+        }
+        long l = addresses.get(index * 2 + 1);
+        return l < low ? -1 : l == low ? 0 : 1;
+    }
+
+    private static FamFamFlags flag(ByteBuffer codes, int index) {
+        return FamFamFlags.fromCountryIgnoreCase((char) codes.get(index * 2),
+                (char) codes.get(index * 2 + 1));
+    }
+
+    /**
+     * Gets the number of IPv4 ranges.
+     *
+     * @return The number of IPv4 ranges
+     */
+    public int getIpv4RangeCount() {
+        return ipv4Count;
+    }
+
+    /**
+     * Gets the number of IPv6 ranges.
+     *
+     * @return The number of IPv6 ranges
+     */
+    public int getIpv6RangeCount() {
+        return ipv6Count;
+    }
+
+}
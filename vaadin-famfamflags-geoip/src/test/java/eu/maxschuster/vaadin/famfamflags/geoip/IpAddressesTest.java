@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.geoip;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the address parsers of {@link IpAddresses}.
+ *
+ * @author Max Schuster
+ */
+public class IpAddressesTest {
+
+    @Test
+    public void parsesIpv4() {
+        assertEquals(0xC0000201L, ipv4("192.0.2.1"));
+        assertEquals(0L, ipv4("0.0.0.0"));
+        assertEquals(0xFFFFFFFFL, ipv4("255.255.255.255"));
+        assertEquals(0x0A000001L, ipv4("010.0.0.1"));
+        // Only the given region is parsed
+        assertEquals(0x01020304L,
+                IpAddresses.parseIpv4("x1.2.3.4x", 1, 8));
+    }
+
+    @Test
+    public void rejectsInvalidIpv4() {
+        for (String text : new String[]{"", "1.2.3", "1.2.3.4.5", "256.0.0.1",
+            "1.2.3.", ".1.2.3", "1..2.3", "1.2.3.4 ", "a.b.c.d", "1.2.3.0004",
+            "-1.2.3.4"}) {
+            assertEquals(text, -1L, ipv4(text));
+        }
+    }
+
+    @Test
+    public void parsesFullIpv6() {
+        assertIpv6(0x20010db800000000L, 0x0000000000000001L,
+                "2001:0db8:0000:0000:0000:0000:0000:0001");
+        assertIpv6(0x20010DB8000A000BL, 0x000C000D000E000FL,
+                "2001:DB8:a:b:c:d:e:f");
+    }
+
+    @Test
+    public void parsesCompressedIpv6() {
+        assertIpv6(0, 0, "::");
+        assertIpv6(0, 1, "::1");
+        assertIpv6(0x20010db800000000L, 1, "2001:db8::1");
+        assertIpv6(0x20010db800000000L, 0, "2001:db8::");
+        assertIpv6(0xfe80000000000000L, 0x0200000000000001L,
+                "fe80::200:0:0:1");
+        assertIpv6(0x0001000200030004L, 0x0005000600070000L,
+                "1:2:3:4:5:6:7::");
+        assertIpv6(0, 0x0002000300040005L, "::2:3:4:5");
+    }
+
+    @Test
+    public void parsesEmbeddedIpv4() {
+        assertIpv6(0, 0x0000FFFFC0000201L, "::ffff:192.0.2.1");
+        assertIpv6(0x0064ff9b00000000L, 0x00000000C0000201L,
+                "64:ff9b::192.0.2.1");
+        assertIpv6(0x0001000200030004L, 0x00050006C0000201L,
+                "1:2:3:4:5:6:192.0.2.1");
+    }
+
+    @Test
+    public void rejectsInvalidIpv6() {
+        for (String text : new String[]{"", ":", ":::", "1::2::3",
+            ":1:2:3:4:5:6:7", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7::8",
+            "12345::", "g::", "1:", "::ffff:192.0.2", "::192.0.2.1:1",
+            "::ffff:256.0.0.1", "2001:db8::1 "}) {
+            long[] out = new long[2];
+            assertFalse(text,
+                    IpAddresses.parseIpv6(text, 0, text.length(), out));
+        }
+    }
+
+    private static long ipv4(String text) {
+        return IpAddresses.parseIpv4(text, 0, text.length());
+    }
+
+    private static void assertIpv6(long high, long low, String text) {
+        long[] out = new long[2];
+        assertTrue(text, IpAddresses.parseIpv6(text, 0, text.length(), out));
+        assertEquals(text, Long.toHexString(high), Long.toHexString(out[0]));
+        assertEquals(text, Long.toHexString(low), Long.toHexString(out[1]));
+    }
+
+}
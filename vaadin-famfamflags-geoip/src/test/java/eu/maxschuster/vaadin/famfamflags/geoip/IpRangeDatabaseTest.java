@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.geoip;
+
+import eu.maxschuster.vaadin.famfamflags.FamFamFlags;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.util.Locale;
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Compiles CSV data with the {@link IpRangeCompiler} and reads it back with
+ * the {@link IpRangeDatabase}.
+ *
+ * @author Max Schuster
+ */
+public class IpRangeDatabaseTest {
+
+    private static final String CSV = "first,last,country\n"
+            + "# comment\n"
+            + "\n"
+            + "1.0.0.0,1.0.0.255,AU\n"
+            + "1.0.1.0,1.0.1.255,au\n"
+            + "\"2.0.0.0/8\",\"FI\"\n"
+            + "3.0.0.0,3.0.0.9,-\n"
+            + "3.0.0.21,3.0.0.30,FR\n"
+            + "3.0.0.10,3.0.0.20,DE\n"
+            + "255.255.255.0/24,SE\n"
+            + "::ffff:5.0.0.0/104,IT\n"
+            + "2001:db8::/32,DE\n"
+            + "2001:db9::,2001:db9::ffff,FI\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rangesAreMergedAndCounted() throws IOException {
+        File file = folder.newFile("ranges.bin");
+        assertEquals(8, IpRangeCompiler.compile(new StringReader(CSV), file));
+        IpRangeDatabase database = IpRangeDatabase.open(file);
+        // 1.0.0.0-1.0.1.255 AU, FI, DE, FR, SE and the mapped IT range
+        assertEquals(6, database.getIpv4RangeCount());
+        assertEquals(2, database.getIpv6RangeCount());
+    }
+
+    @Test
+    public void ipv4BoundariesResolve() throws IOException {
+        IpRangeDatabase database = compile(CSV);
+        assertNull(database.resolve("0.255.255.255"));
+        assertSame(FamFamFlags.AUSTRALIA, database.resolve("1.0.0.0"));
+        // Merged with the adjacent range of the same country
+        assertSame(FamFamFlags.AUSTRALIA, database.resolve("1.0.1.0"));
+        assertSame(FamFamFlags.AUSTRALIA, database.resolve("1.0.1.255"));
+        assertNull(database.resolve("1.0.2.0"));
+        assertSame(FamFamFlags.FINLAND, database.resolve("2.0.0.0"));
+        assertSame(FamFamFlags.FINLAND, database.resolve("2.255.255.255"));
+        // Ranges without a country code are dropped
+        assertNull(database.resolve("3.0.0.9"));
+        assertSame(FamFamFlags.GERMANY, database.resolve("3.0.0.10"));
+        assertSame(FamFamFlags.GERMANY, database.resolve("3.0.0.20"));
+        // Adjacent ranges of different countries stay apart
+        assertSame(FamFamFlags.FRANCE, database.resolve("3.0.0.21"));
+        assertSame(FamFamFlags.FRANCE, database.resolve("3.0.0.30"));
+        assertNull(database.resolve("3.0.0.31"));
+        assertSame(FamFamFlags.ITALY, database.resolve("5.1.2.3"));
+        assertNull(database.resolve("255.255.254.255"));
+        assertSame(FamFamFlags.SWEDEN, database.resolve("255.255.255.0"));
+        assertSame(FamFamFlags.SWEDEN, database.resolve("255.255.255.255"));
+    }
+
+    @Test
+    public void ipv6BoundariesResolve() throws IOException {
+        IpRangeDatabase database = compile(CSV);
+        assertNull(database.resolve("2001:db7:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertSame(FamFamFlags.GERMANY, database.resolve("2001:db8::"));
+        assertSame(FamFamFlags.GERMANY,
+                database.resolve("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertSame(FamFamFlags.FINLAND, database.resolve("2001:db9::"));
+        assertSame(FamFamFlags.FINLAND, database.resolve("2001:db9::ffff"));
+        assertNull(database.resolve("2001:db9::1:0"));
+        assertNull(database.resolve("::1"));
+    }
+
+    @Test
+    public void mappedAddressesResolveAsIpv4() throws IOException {
+        IpRangeDatabase database = compile(CSV);
+        assertSame(FamFamFlags.FINLAND, database.resolve("::ffff:2.1.1.1"));
+        assertSame(FamFamFlags.AUSTRALIA,
+                database.resolve("::FFFF:100:1ff"));
+        assertNull(database.resolve("::ffff:1.0.2.0"));
+    }
+
+    @Test
+    public void binaryAddressesResolve() throws IOException {
+        IpRangeDatabase database = compile(CSV);
+        assertSame(FamFamFlags.GERMANY,
+                database.resolve(new byte[]{3, 0, 0, 15}));
+        assertSame(FamFamFlags.SWEDEN,
+                database.resolve(new byte[]{-1, -1, -1, -1}));
+        assertSame(FamFamFlags.GERMANY, database.resolve(
+                InetAddress.getByName("2001:db8::1")));
+        assertSame(FamFamFlags.FINLAND, database.resolveIpv4(0x02000001));
+        assertNull(database.resolve(new byte[]{1, 2, 3}));
+        assertNull(database.resolve((byte[]) null));
+    }
+
+    @Test
+    public void invalidAddressesDontResolve() throws IOException {
+        IpRangeDatabase database = compile(CSV);
+        assertNull(database.resolve((CharSequence) null));
+        assertNull(database.resolve(""));
+        assertNull(database.resolve("localhost"));
+        assertNull(database.resolve("2.0.0"));
+        assertNull(database.resolve("2001:db8::1::"));
+    }
+
+    @Test
+    public void codesAreUppercasedIndependentOfTheDefaultLocale()
+            throws IOException {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        IpRangeDatabase database;
+        try {
+            database = compile("10.0.0.0/8,fi\n");
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+        assertSame(FamFamFlags.FINLAND, database.resolve("10.1.2.3"));
+    }
+
+    @Test(expected = IOException.class)
+    public void overlappingRangesAreRejected() throws IOException {
+        compile("1.0.0.0,1.0.0.255,AU\n1.0.0.128/25,NZ\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void reversedRangesAreRejected() throws IOException {
+        compile("1.0.0.0,1.0.0.255,AU\n1.0.2.0,1.0.1.0,AU\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidLinesAreRejected() throws IOException {
+        compile("1.0.0.0,1.0.0.255,AU\n1.0.1.0/33,AU\n");
+    }
+
+    private IpRangeDatabase compile(String csv) throws IOException {
+        File file = folder.newFile("database.bin");
+        IpRangeCompiler.compile(new StringReader(csv), file);
+        return IpRangeDatabase.open(file);
+    }
+
+}
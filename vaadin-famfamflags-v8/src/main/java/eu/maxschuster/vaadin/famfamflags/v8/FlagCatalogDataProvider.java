@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.v8;
+
+import com.vaadin.data.provider.AbstractBackEndDataProvider;
+import com.vaadin.data.provider.Query;
+import com.vaadin.data.provider.QuerySortOrder;
+import com.vaadin.shared.data.sort.SortDirection;
+import eu.maxschuster.vaadin.famfamflags.FlagCatalog;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A lazy data provider for the entries of a {@link FlagCatalog}.
+ *
+ * <p>
+ * The provider doesn't copy the entries. Every query walks the shared, already
+ * sorted lists of the catalog and only collects the requested page, so a Grid
+ * costs memory for its visible rows instead of all flags. The filter is a text
+ * that must be contained in the country name or code (ignoring case).
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * grid.setDataProvider(new FlagCatalogDataProvider(getLocale()));<br>
+ * grid.addColumn(FlagCatalog.Entry::getFlag, new FlagRenderer&lt;&gt;());<br>
+ * grid.addColumn(FlagCatalog.Entry::getName)<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.setSortProperty(FlagCatalogDataProvider.NAME);<br>
+ * grid.addColumn(FlagCatalog.Entry::getCode)<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.setSortProperty(FlagCatalogDataProvider.CODE);<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public class FlagCatalogDataProvider
+        extends AbstractBackEndDataProvider<FlagCatalog.Entry, String> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Sort property of the country name.
+     */
+    public static final String NAME = "name";
+
+    /**
+     * Sort property of the country code.
+     */
+    public static final String CODE = "code";
+
+    /**
+     * The shared catalog
+     */
+    private final FlagCatalog catalog;
+
+    /**
+     * Creates a new {@link FlagCatalogDataProvider} instance.
+     *
+     * @param locale The locale of the country names
+     */
+    public FlagCatalogDataProvider(Locale locale) {
+        this(FlagCatalog.of(locale));
+    }
+
+    /**
+     * Creates a new {@link FlagCatalogDataProvider} instance.
+     *
+     * @param catalog The catalog
+     */
+    public FlagCatalogDataProvider(FlagCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Gets the catalog.
+     *
+     * @return The catalog
+     */
+    public FlagCatalog getCatalog() {
+        return catalog;
+    }
+
+    @Override
+    protected Stream<FlagCatalog.Entry> fetchFromBackEnd(
+            Query<FlagCatalog.Entry, String> query) {
+        return stream(query)
+                .skip(query.getOffset())
+                .limit(query.getLimit());
+    }
+
+    @Override
+    protected int sizeInBackEnd(Query<FlagCatalog.Entry, String> query) {
+        String filter = query.getFilter().orElse(null);
+        if (filter == null || filter.isEmpty()) {
+            return catalog.getEntries().size();
+        }
+        return (int) stream(query).count();
+    }
+
+    @Override
+    public Object getId(FlagCatalog.Entry item) {
+        return item.getCode();
+    }
+
+    /**
+     * Streams the matching entries in the requested order.
+     *
+     * @param query The query
+     * @return The matching entries
+     */
+    private Stream<FlagCatalog.Entry> stream(
+            Query<FlagCatalog.Entry, String> query) {
+        List<FlagCatalog.Entry> entries = catalog.getEntries();
+        boolean descending = false;
+        for (QuerySortOrder order : query.getSortOrders()) {
+            if (NAME.equals(order.getSorted())) {
+                entries = catalog.getEntries();
+            } else if (CODE.equals(order.getSorted())) {
+                entries = catalog.getEntriesInCodeOrder();
+            } else {
+                continue;
+            }
+            descending = order.getDirection() == SortDirection.DESCENDING;
+            break;
+        }
+        List<FlagCatalog.Entry> sorted = entries;
+        int size = sorted.size();
+        Stream<FlagCatalog.Entry> stream = descending
+                ? IntStream.range(0, size).mapToObj(i -> sorted.get(size - 1 - i))
+                : sorted.stream();
+        String filter = query.getFilter().orElse(null);
+        if (filter != null && !filter.isEmpty()) {
+            stream = stream.filter(entry -> entry.matches(filter));
+        }
+        return stream;
+    }
+
+}
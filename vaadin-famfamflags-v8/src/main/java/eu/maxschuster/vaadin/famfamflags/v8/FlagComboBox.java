@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.v8;
+
+import com.vaadin.server.SerializableFunction;
+import com.vaadin.ui.ComboBox;
+import eu.maxschuster.vaadin.famfamflags.FamFamFlags;
+import eu.maxschuster.vaadin.famfamflags.FlagCatalog;
+import eu.maxschuster.vaadin.famfamflags.FlagSearchIndex;
+import java.util.Locale;
+
+/**
+ * A {@link ComboBox} to pick a country by its flag and localized name.
+ *
+ * <p>
+ * Typed text is matched with a shared {@link FlagSearchIndex} on the server,
+ * so the names are not scanned again on every keystroke. The items show
+ * their flag as icon and the country name as caption.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * FlagComboBox country = new FlagComboBox("Country", getLocale());<br>
+ * country.setValue(FamFamFlags.GERMANY);<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public class FlagComboBox extends ComboBox<FamFamFlags> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new {@link FlagComboBox} instance.
+     *
+     * @param locale The locale of the country names
+     */
+    public FlagComboBox(Locale locale) {
+        this(null, locale);
+    }
+
+    /**
+     * Creates a new {@link FlagComboBox} instance.
+     *
+     * @param caption The caption
+     * @param locale The locale of the country names
+     */
+    public FlagComboBox(String caption, Locale locale) {
+        super(caption);
+        FlagSearchIndex index = FlagSearchIndex.of(locale);
+        FlagCatalog catalog = index.getCatalog();
+        setDataProvider(new FlagSearchDataProvider(index),
+                SerializableFunction.identity());
+        setItemCaptionGenerator(catalog::getName);
+        setItemIconGenerator(flag -> flag);
+    }
+
+}
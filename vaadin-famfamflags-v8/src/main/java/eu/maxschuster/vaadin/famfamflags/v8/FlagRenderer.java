@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.v8;
+
+import com.vaadin.annotations.StyleSheet;
+import com.vaadin.ui.renderers.AbstractRenderer;
+import elemental.json.Json;
+import elemental.json.JsonValue;
+import eu.maxschuster.vaadin.famfamflags.FamFamFlags;
+
+/**
+ * A Grid renderer that displays {@link FamFamFlags} from the flag sprite.
+ *
+ * <p>
+ * Unlike the <code>ImageRenderer</code> only the country code of each flag
+ * is sent to the client, no resource is registered per row. The client draws
+ * the flag with the {@link FamFamFlags#SPRITE_STYLESHEET sprite stylesheet},
+ * which is loaded once with the renderer.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * grid.addColumn(row -&gt; FamFamFlags.fromLocale(row.getLocale()),
+ * new FlagRenderer&lt;&gt;());<br>
+ * </code>
+ * </p>
+ *
+ * @param <T> The Grid item type
+ * @author Max Schuster
+ */
+@StyleSheet(FamFamFlags.SPRITE_STYLESHEET)
+public class FlagRenderer<T> extends AbstractRenderer<T, FamFamFlags> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new {@link FlagRenderer} instance.
+     */
+    public FlagRenderer() {
+        super(FamFamFlags.class, null);
+    }
+
+    @Override
+    public JsonValue encode(FamFamFlags flag) {
+        return flag == null ? Json.createNull() : Json.create(flag.getCountry());
+    }
+
+}
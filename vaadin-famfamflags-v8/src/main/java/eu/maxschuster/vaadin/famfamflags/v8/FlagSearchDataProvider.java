@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.v8;
+
+import com.vaadin.data.provider.AbstractBackEndDataProvider;
+import com.vaadin.data.provider.Query;
+import eu.maxschuster.vaadin.famfamflags.FamFamFlags;
+import eu.maxschuster.vaadin.famfamflags.FlagCatalog;
+import eu.maxschuster.vaadin.famfamflags.FlagSearchIndex;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * A data provider that filters flags with a shared {@link FlagSearchIndex}.
+ *
+ * <p>
+ * The filter is the text typed by the user, the flags are returned ranked by
+ * how well their country name matches it. Used by the {@link FlagComboBox},
+ * but works with every component that filters by a <code>String</code>.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public class FlagSearchDataProvider
+        extends AbstractBackEndDataProvider<FamFamFlags, String> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The shared index
+     */
+    private final FlagSearchIndex index;
+
+    /**
+     * Creates a new {@link FlagSearchDataProvider} instance.
+     *
+     * @param locale The locale of the country names
+     */
+    public FlagSearchDataProvider(Locale locale) {
+        this(FlagSearchIndex.of(locale));
+    }
+
+    /**
+     * Creates a new {@link FlagSearchDataProvider} instance.
+     *
+     * @param index The index
+     */
+    public FlagSearchDataProvider(FlagSearchIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Gets the index.
+     *
+     * @return The index
+     */
+    public FlagSearchIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    protected Stream<FamFamFlags> fetchFromBackEnd(
+            Query<FamFamFlags, String> query) {
+        int end = query.getOffset() + query.getLimit();
+        return index.search(query.getFilter().orElse(null),
+                end < 0 ? Integer.MAX_VALUE : end)
+                .stream()
+                .skip(query.getOffset())
+                .map(FlagCatalog.Entry::getFlag);
+    }
+
+    @Override
+    protected int sizeInBackEnd(Query<FamFamFlags, String> query) {
+        return index.count(query.getFilter().orElse(null));
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.v8;
+
+import com.vaadin.server.ServiceInitEvent;
+import com.vaadin.server.VaadinServiceInitListener;
+import eu.maxschuster.vaadin.famfamflags.FlagRequestHandler;
+import eu.maxschuster.vaadin.famfamflags.FlagStore;
+
+/**
+ * Loads all flag icons into the {@link FlagStore} when the Vaadin service
+ * starts and serves them with the {@link FlagRequestHandler}.
+ *
+ * <p>
+ * This listener is registered through
+ * <code>META-INF/services/com.vaadin.server.VaadinServiceInitListener</code>
+ * but stays inactive unless the application opts in by setting the init
+ * parameter (or system property) {@value #ENABLED_PARAMETER} to
+ * <code>true</code>. Once enabled, the {@link FlagRequestHandler} is added
+ * once for the whole service, calling
+ * {@link FlagRequestHandler#install(com.vaadin.server.VaadinService)} is not
+ * necessary.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * &#64;VaadinServletConfiguration(ui = MyUI.class, productionMode = true)<br>
+ * &#64;WebServlet(urlPatterns = "/*", initParams = &#64;WebInitParam(<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;name = "famfamflags.requestHandler", value = "true"))<br>
+ * public class MyServlet extends VaadinServlet {<br>
+ * }<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public class FlagStoreServiceInitListener implements VaadinServiceInitListener {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The init parameter that enables this listener
+     */
+    public static final String ENABLED_PARAMETER
+            = "famfamflags.requestHandler";
+
+    @Override
+    public void serviceInit(ServiceInitEvent event) {
+        String enabled = event.getSource().getDeploymentConfiguration()
+                .getApplicationOrSystemProperty(ENABLED_PARAMETER, "false");
+        if (!Boolean.parseBoolean(enabled)) {
+            return;
+        }
+        FlagStore.warmUp();
+        event.addRequestHandler(new FlagRequestHandler());
+    }
+
+}
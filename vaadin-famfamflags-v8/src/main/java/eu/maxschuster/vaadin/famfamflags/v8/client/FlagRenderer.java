@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.v8.client;
+
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.dom.client.Element;
+import com.vaadin.client.renderers.Renderer;
+import com.vaadin.client.widget.grid.RendererCellReference;
+
+/**
+ * Client-side renderer that displays a flag from the sprite by its country
+ * code.
+ *
+ * @author Max Schuster
+ */
+public class FlagRenderer implements Renderer<String> {
+
+    /**
+     * The base style name of all flags rendered from the sprite.
+     */
+    private static final String STYLE_NAME = "famfamflags";
+
+    @Override
+    public void render(RendererCellReference cell, String country) {
+        Element element = cell.getElement();
+        Element flag = element.getFirstChildElement();
+        if (flag == null) {
+            flag = Document.get().createSpanElement();
+            element.appendChild(flag);
+        }
+        flag.setClassName(country == null ? "" : STYLE_NAME + " " + STYLE_NAME
+                + "-" + country.toLowerCase());
+    }
+
+}
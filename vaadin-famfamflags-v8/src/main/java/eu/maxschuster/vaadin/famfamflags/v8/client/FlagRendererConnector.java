@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.v8.client;
+
+import com.vaadin.client.connectors.grid.AbstractGridRendererConnector;
+import com.vaadin.shared.ui.Connect;
+
+/**
+ * A connector for {@link FlagRenderer}.
+ *
+ * @author Max Schuster
+ */
+@Connect(eu.maxschuster.vaadin.famfamflags.v8.FlagRenderer.class)
+public class FlagRendererConnector
+        extends AbstractGridRendererConnector<String> {
+
+    @Override
+    public FlagRenderer getRenderer() {
+        return (FlagRenderer) super.getRenderer();
+    }
+
+}
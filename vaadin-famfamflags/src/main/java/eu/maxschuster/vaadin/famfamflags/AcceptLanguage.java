@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves the flag of an HTTP <code>Accept-Language</code> header.
+ *
+ * <p>
+ * The language ranges are tried in the order of their quality values (ranges
+ * with the same quality keep the order of the header). A range with a region
+ * (<code>de-AT</code>) resolves to the flag of that region, a range without
+ * one (<code>de</code>) to the country the language is most likely spoken in.
+ * The first range that resolves to a flag wins.
+ * </p>
+ *
+ * <p>
+ * Browsers send only a few distinct headers, so the results are cached by the
+ * raw header. Lookups don't lock, the cache is simply cleared when it is
+ * full.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+final class AcceptLanguage {
+
+    /**
+     * Maximum number of cached headers.
+     */
+    private static final int MAX_CACHED_HEADERS = 256;
+
+    /**
+     * Longer headers are resolved but not cached, so odd clients can't fill
+     * the cache with huge keys.
+     */
+    private static final int MAX_CACHED_HEADER_LENGTH = 256;
+
+    /**
+     * The resolved flag slots by header.
+     */
+    private static final ConcurrentMap<String, Integer> CACHE
+            = new ConcurrentHashMap<String, Integer>(MAX_CACHED_HEADERS * 2);
+
+    /**
+     * Country a language without region is most likely spoken in (derived
+     * from the CLDR likely subtags). Languages with a script subtag are
+     * listed as <code>language-script</code>.
+     */
+    private static final String LIKELY_COUNTRIES
+            = "af:ZA,am:ET,ar:EG,as:IN,ay:BO,az:AZ,be:BY,bg:BG,bn:BD,bo:CN,"
+            + "br:FR,bs:BA,ca:ES,ceb:PH,ckb:IQ,co:FR,cs:CZ,cy:GB,da:DK,de:DE,"
+            + "dv:MV,dz:BT,el:GR,en:US,es:ES,et:EE,eu:ES,fa:IR,fi:FI,fil:PH,"
+            + "fj:FJ,fo:FO,fr:FR,fy:NL,ga:IE,gd:GB,gl:ES,gn:PY,gsw:CH,gu:IN,"
+            + "ha:NG,haw:US,he:IL,hi:IN,hr:HR,ht:HT,hu:HU,hy:AM,id:ID,ig:NG,"
+            + "in:ID,is:IS,it:IT,iw:IL,ja:JP,jv:ID,ka:GE,kk:KZ,kl:GL,km:KH,"
+            + "kn:IN,ko:KR,ku:TR,ky:KG,lb:LU,ln:CD,lo:LA,lt:LT,lv:LV,mg:MG,"
+            + "mi:NZ,mk:MK,ml:IN,mn:MN,mr:IN,ms:MY,mt:MT,my:MM,nb:NO,ne:NP,"
+            + "nl:NL,nn:NO,no:NO,ny:MW,oc:FR,pa:IN,pl:PL,ps:AF,pt:BR,qu:PE,"
+            + "rm:CH,ro:RO,ru:RU,rw:RW,sd:PK,se:NO,si:LK,sk:SK,sl:SI,sm:WS,"
+            + "sn:ZW,so:SO,sq:AL,sr:RS,ss:SZ,st:LS,su:ID,sv:SE,sw:TZ,ta:IN,"
+            + "te:IN,tg:TJ,th:TH,ti:ER,tk:TM,tl:PH,tn:BW,to:TO,tr:TR,ug:CN,"
+            + "uk:UA,ur:PK,uz:UZ,vi:VN,xh:ZA,yo:NG,zh:CN,zh-hans:CN,"
+            + "zh-hant:TW,zu:ZA";
+
+    /**
+     * The parsed {@link #LIKELY_COUNTRIES}.
+     */
+    private static final Map<String, String> LIKELY_COUNTRY_MAP
+            = parseLikelyCountries();
+
+    private AcceptLanguage() {
+    }
+
+    /**
+     * Gets the flag slot of the given header.
+     *
+     * @param header The <code>Accept-Language</code> header
+     * @return The slot of the best flag or {@link FamFamFlags#MISS_SLOT}
+     */
+    static int slot(String header) {
+        if (header.length() > MAX_CACHED_HEADER_LENGTH) {
+            return resolve(header);
+        }
+        Integer slot = CACHE.get(header);
+        if (slot == null) {
+            slot = resolve(header);
+            if (CACHE.size() >= MAX_CACHED_HEADERS) {
+                // Start over instead of tracking the usage on every hit
+                CACHE.clear();
+            }
+            CACHE.put(header, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Parses the header and resolves the slot of its best flag.
+     *
+     * @param header The <code>Accept-Language</code> header
+     * @return The slot of the best flag or {@link FamFamFlags#MISS_SLOT}
+     */
+    private static int resolve(String header) {
+        for (Range range : parse(header)) {
+            int slot = resolveTag(range.tag);
+            if (slot != FamFamFlags.MISS_SLOT) {
+                return slot;
+            }
+        }
+        return FamFamFlags.MISS_SLOT;
+    }
+
+    /**
+     * Resolves the slot of a single language tag.
+     *
+     * @param tag The lowercase language tag (e.g. <code>de-at</code>)
+     * @return The slot of the flag or {@link FamFamFlags#MISS_SLOT}
+     */
+    private static int resolveTag(String tag) {
+        String[] subtags = tag.split("[-_]");
+        String language = subtags[0];
+        String script = null;
+        for (int i = 1; i < subtags.length; i++) {
+            String subtag = subtags[i];
+            if (subtag.length() == 2) {
+                int slot = FamFamFlags.slot(
+                        Character.toUpperCase(subtag.charAt(0)),
+                        Character.toUpperCase(subtag.charAt(1)));
+                if (FamFamFlags.getFlag(slot) != null) {
+                    return slot;
+                }
+                // Unknown region, try the language
+                break;
+            } else if (subtag.length() == 4 && i == 1) {
+                script = subtag;
+            } else {
+                // Numeric region (es-419), variant or extension
+                break;
+            }
+        }
+        String country = null;
+        if (script != null) {
+            country = LIKELY_COUNTRY_MAP.get(language + '-' + script);
+        }
+        if (country == null) {
+            country = LIKELY_COUNTRY_MAP.get(language);
+        }
+        if (country == null) {
+            return FamFamFlags.MISS_SLOT;
+        }
+        int slot = FamFamFlags.slot(country.charAt(0), country.charAt(1));
+        return FamFamFlags.getFlag(slot) != null ? slot : FamFamFlags.MISS_SLOT;
+    }
+
+    /**
+     * Parses the language ranges of the header, ordered by quality. Ranges
+     * with a quality of 0, invalid qualities and the wildcard are dropped.
+     *
+     * @param header The <code>Accept-Language</code> header
+     * @return The ranges
+     */
+    private static List<Range> parse(String header) {
+        String[] parts = header.split(",");
+        List<Range> ranges = new ArrayList<Range>(parts.length);
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            float quality = 1f;
+            int semicolon = part.indexOf(';');
+            if (semicolon >= 0) {
+                quality = parseQuality(part.substring(semicolon + 1));
+                part = part.substring(0, semicolon);
+            }
+            String tag = part.trim().toLowerCase(Locale.ENGLISH);
+            if (quality > 0 && !tag.isEmpty() && !tag.equals("*")) {
+                ranges.add(new Range(tag, quality, i));
+            }
+        }
+        // Stable, so ranges with the same quality keep the header order
+        Collections.sort(ranges);
+        return ranges;
+    }
+
+    /**
+     * Parses the parameters of a language range. Only the quality is read,
+     * other parameters are ignored.
+     *
+     * @param parameters The parameters (e.g. <code>q=0.8</code>)
+     * @return The quality, 1 if there is none or 0 if it is invalid
+     */
+    private static float parseQuality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            parameter = parameter.trim();
+            if (!parameter.startsWith("q=") && !parameter.startsWith("Q=")) {
+                continue;
+            }
+            try {
+                float quality = Float.parseFloat(
+                        parameter.substring(2).trim());
+                return quality >= 0 && quality <= 1 ? quality : 0;
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 1f;
+    }
+
+    private static Map<String, String> parseLikelyCountries() {
+        String[] pairs = LIKELY_COUNTRIES.split(",");
+        Map<String, String> map = new HashMap<String, String>(
+                pairs.length * 4 / 3 + 1);
+        for (String pair : pairs) {
+            int colon = pair.indexOf(':');
+            map.put(pair.substring(0, colon), pair.substring(colon + 1));
+        }
+        return map;
+    }
+
+    /**
+     * A language range of the header.
+     */
+    private static final class Range implements Comparable<Range> {
+
+        /**
+         * The lowercase language tag
+         */
+        private final String tag;
+
+        /**
+         * The quality
+         */
+        private final float quality;
+
+        /**
+         * The position inside of the header
+         */
+        private final int index;
+
+        Range(String tag, float quality, int index) {
+            this.tag = tag;
+            this.quality = quality;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(Range o) {
+            int result = Float.compare(o.quality, quality);
+            return result != 0 ? result : index - o.index;
+        }
+
+    }
+
+}
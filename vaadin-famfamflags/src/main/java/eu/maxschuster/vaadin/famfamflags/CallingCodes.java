@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Resolves phone numbers to flags by their country calling code.
+ *
+ * <p>
+ * The calling codes are loaded from {@link #CALLING_CODES} when this class is
+ * first used and compiled into a digit trie: Every node has ten child slots
+ * inside of a single <code>int</code> array and the flag slot of its prefix.
+ * A lookup walks the digits of the number and remembers the last (longest)
+ * prefix with a flag, without creating any objects.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+final class CallingCodes {
+
+    /**
+     * The classpath location of the calling codes.
+     */
+    static final String CALLING_CODES = "calling-codes.properties";
+
+    /**
+     * Number of children per node.
+     */
+    private static final int DIGITS = 10;
+
+    /**
+     * The child node indexes of each node (<code>node * 10 + digit</code>).
+     * The root is node 0, so 0 also marks a missing child.
+     */
+    private static final int[] CHILDREN;
+
+    /**
+     * The flag slot of the prefix of each node or
+     * {@link FamFamFlags#MISS_SLOT}.
+     */
+    private static final short[] SLOTS;
+
+    static {
+        Properties codes = load();
+        int capacity = 1;
+        for (Object prefix : codes.keySet()) {
+            capacity += ((String) prefix).length();
+        }
+        int[] children = new int[capacity * DIGITS];
+        short[] slots = new short[capacity];
+        Arrays.fill(slots, (short) FamFamFlags.MISS_SLOT);
+        int nodes = 1;
+        for (Map.Entry<Object, Object> entry : codes.entrySet()) {
+            String prefix = (String) entry.getKey();
+            String country = (String) entry.getValue();
+            int slot = country.length() == 2
+                    ? FamFamFlags.slot(country.charAt(0), country.charAt(1))
+                    : FamFamFlags.MISS_SLOT;
+            if (FamFamFlags.getFlag(slot) == null) {
+                // Falls back to the next shorter prefix
+                continue;
+            }
+            int node = 0;
+            for (int i = 0; i < prefix.length(); i++) {
+                int digit = prefix.charAt(i) - '0';
+                if (digit < 0 || digit >= DIGITS) {
+                    throw new IllegalStateException(
+                            "Invalid calling code " + prefix);
+                }
+                int child = children[node * DIGITS + digit];
+                if (child == 0) {
+                    child = nodes++;
+                    children[node * DIGITS + digit] = child;
+                }
+                node = child;
+            }
+            slots[node] = (short) slot;
+        }
+        CHILDREN = Arrays.copyOf(children, nodes * DIGITS);
+        SLOTS = Arrays.copyOf(slots, nodes);
+    }
+
+    private CallingCodes() {
+    }
+
+    /**
+     * Gets the flag slot of the given phone number.
+     *
+     * <p>
+     * The number has to be in international format, either with a leading
+     * <code>+</code> or <code>00</code> or as plain E.164 digits. Spaces,
+     * dashes, dots, slashes and parentheses between the digits are skipped.
+     * A number with a single leading <code>0</code> is a national number and
+     * can't be resolved.
+     * </p>
+     *
+     * @param number The phone number
+     * @return The slot of the flag or {@link FamFamFlags#MISS_SLOT}
+     */
+    static int slot(CharSequence number) {
+        int length = number.length();
+        int i = 0;
+        while (i < length && number.charAt(i) == ' ') {
+            i++;
+        }
+        if (i < length && number.charAt(i) == '+') {
+            i++;
+        } else if (i + 1 < length && number.charAt(i) == '0'
+                && number.charAt(i + 1) == '0') {
+            i += 2;
+        } else if (i < length && number.charAt(i) == '0') {
+            return FamFamFlags.MISS_SLOT;
+        }
+        int node = 0;
+        int result = FamFamFlags.MISS_SLOT;
+        for (; i < length; i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                node = CHILDREN[node * DIGITS + c - '0'];
+                if (node == 0) {
+                    break;
+                }
+                if (SLOTS[node] != FamFamFlags.MISS_SLOT) {
+                    result = SLOTS[node];
+                }
+            } else if (!isSeparator(c)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '-' || c == '.' || c == '/' || c == '('
+                || c == ')';
+    }
+
+    private static Properties load() {
+        Properties properties = new Properties();
+        InputStream in = CallingCodes.class.getResourceAsStream(CALLING_CODES);
+        if (in == null) {
+            throw new IllegalStateException(
+                    "Can't find the calling codes " + CALLING_CODES);
+        }
+        try {
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "Can't read the calling codes", e);
+        }
+        return properties;
+    }
+
+}
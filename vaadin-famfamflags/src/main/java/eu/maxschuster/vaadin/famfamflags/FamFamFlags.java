@@ -17,9 +17,13 @@ package eu.maxschuster.vaadin.famfamflags;
 
 import com.vaadin.server.ExternalResource;
 import com.vaadin.shared.ApplicationConstants;
-import java.util.HashMap;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 
 /**
  * A collection of country flags icons.
@@ -81,10 +85,66 @@ public final class FamFamFlags extends ExternalResource {
             + "addons/famfamflags/";
 
     /**
-     * A HashMap for fast country code to FamFamFlags matching.
+     * The base style name of all flags rendered from the sprite.
      */
-    private static final Map<String, FamFamFlags> COUNTRY_TO_FLAG
-            = new HashMap<String, FamFamFlags>(247);
+    static final String STYLE_NAME = "famfamflags";
+
+    /**
+     * The URL of the stylesheet that renders all flags from a single sprite
+     * image.
+     *
+     * <p>
+     * Load it once (e.g. with
+     * <code>@StyleSheet(FamFamFlags.SPRITE_STYLESHEET)</code> or
+     * <code>Page.getCurrent().getStyles().add(...)</code>) and add
+     * {@link #getStyleName()} to any component to display a flag without an
+     * extra HTTP request per flag.
+     * </p>
+     */
+    public static final String SPRITE_STYLESHEET = ICON_PATH
+            + "famfamflags-sprite.css";
+
+    /**
+     * The URL of the sprite image used by the {@link #SPRITE_STYLESHEET}.
+     */
+    public static final String SPRITE_IMAGE = ICON_PATH
+            + "famfamflags-sprite.png";
+
+    /**
+     * Number of letters in the alphabet used by the 2-letter codes.
+     */
+    private static final int LETTERS = 26;
+
+    /**
+     * A direct lookup table for the 2-letter country codes. The slot of a code
+     * is {@code (first - 'A') * 26 + (second - 'A')}.
+     */
+    private static final FamFamFlags[] TWO_LETTER_FLAGS
+            = new FamFamFlags[LETTERS * LETTERS];
+
+    /**
+     * Maximum number of flags with codes that aren't 2-letter codes.
+     */
+    private static final int MAX_OTHER_FLAGS = 8;
+
+    /**
+     * Flags with codes that aren't 2-letter codes (e.g. "ENGLAND").
+     */
+    private static final List<FamFamFlags> OTHER_FLAGS
+            = new ArrayList<FamFamFlags>(MAX_OTHER_FLAGS);
+
+    /**
+     * Every lookup ends in one slot: The slots of the 2-letter codes come
+     * first, followed by the slots of the {@link #OTHER_FLAGS} and the
+     * {@link #MISS_SLOT}.
+     */
+    static final int SLOTS = LETTERS * LETTERS + MAX_OTHER_FLAGS + 1;
+
+    /**
+     * The slot of lookups with codes that are neither a 2-letter code nor one
+     * of the {@link #OTHER_FLAGS} codes.
+     */
+    static final int MISS_SLOT = SLOTS - 1;
 
     /**
      * Flag of "Afghanistan"
@@ -1334,6 +1394,27 @@ public final class FamFamFlags extends ExternalResource {
      */
     private final String country;
 
+    /**
+     * The icon url. Created on first use by {@link #getURL()}.
+     */
+    private String url;
+
+    /**
+     * The style names that render this flag from the sprite. Created on first
+     * use by {@link #getStyleName()}.
+     */
+    private String styleName;
+
+    /**
+     * The grayscale variant of this flag
+     */
+    private final FlagVariant disabled;
+
+    /**
+     * The half transparent variant of this flag
+     */
+    private final FlagVariant translucent;
+
     /**
      * Creates a new {@link FamFamFlags} instance.
      *
@@ -1341,10 +1422,30 @@ public final class FamFamFlags extends ExternalResource {
      * code)
      */
     private FamFamFlags(String country) {
-        super(getIconUrl(country), null);
+        /*
+         * The real url is created lazily by getURL(), so the class initializer
+         * only has to allocate the instances. The shared ICON_PATH constant
+         * just satisfies the non-null check of the super class.
+         */
+        super(ICON_PATH, null);
         this.country = country;
-        this.MIMEType = "image/png";
-        COUNTRY_TO_FLAG.put(country, this);
+        this.MIMEType = FlagResources.MIME_TYPE;
+        this.disabled = new FlagVariant(this, FlagVariant.Type.DISABLED,
+                ICON_PATH);
+        this.translucent = new FlagVariant(this, FlagVariant.Type.TRANSLUCENT,
+                ICON_PATH);
+        int slot = country.length() == 2
+                ? slot(country.charAt(0), country.charAt(1)) : MISS_SLOT;
+        if (slot != MISS_SLOT) {
+            TWO_LETTER_FLAGS[slot] = this;
+        } else {
+            if (OTHER_FLAGS.size() == MAX_OTHER_FLAGS) {
+                // More would collide with the MISS_SLOT
+                throw new IllegalStateException("More than " + MAX_OTHER_FLAGS
+                        + " flags without a 2-letter code");
+            }
+            OTHER_FLAGS.add(this);
+        }
     }
 
     /**
@@ -1360,19 +1461,41 @@ public final class FamFamFlags extends ExternalResource {
     }
 
     /**
-     * Gets the icon url for the given country code.
+     * Gets the icon url for the given country code. The file name contains a
+     * hash of the icon, so the url changes whenever the icon changes.
      *
      * @param country The country code (usually an uppercase ISO 3166 2-letter
      * code)
      * @return The icons url
      */
-    private static String getIconUrl(String country) {
-        return ICON_PATH + country.toLowerCase(Locale.US) + ".png";
+    static String getIconUrl(String country) {
+        return ICON_PATH + FlagManifest.getFileName(country);
+    }
+
+    /**
+     * Gets the style names that render the flag of the given country code from
+     * the sprite (e.g. <code>"famfamflags famfamflags-fi"</code>).
+     *
+     * <p>
+     * The style names only work if the {@link #SPRITE_STYLESHEET} has been
+     * loaded.
+     * </p>
+     *
+     * @param country The country code (usually an uppercase ISO 3166 2-letter
+     * code)
+     * @return The style names
+     */
+    public static String getStyleName(String country) {
+        return STYLE_NAME + " " + STYLE_NAME + "-"
+                + country.toLowerCase(Locale.US);
     }
 
     /**
      * Returns the {@link FamFamFlags} instance for the given country code or
-     * {@code null} if no matching instance was found.
+     * {@code null} if no matching instance was found. The code is matched
+     * case-sensitive, use
+     * {@link #fromCountryIgnoreCase(java.lang.CharSequence)} for lowercase or
+     * mixed case codes.
      *
      * @param country The country code (usually an uppercase ISO 3166 2-letter
      * code)
@@ -1380,7 +1503,255 @@ public final class FamFamFlags extends ExternalResource {
      * @see Locale#getCountry()
      */
     public static FamFamFlags fromCountry(String country) {
-        return COUNTRY_TO_FLAG.get(country);
+        if (country == null) {
+            return lookup(MISS_SLOT);
+        }
+        if (country.length() == 2) {
+            return lookup(slot(country.charAt(0), country.charAt(1)));
+        }
+        for (int i = 0; i < OTHER_FLAGS.size(); i++) {
+            if (OTHER_FLAGS.get(i).country.equals(country)) {
+                return lookup(LETTERS * LETTERS + i);
+            }
+        }
+        return lookup(MISS_SLOT);
+    }
+
+    /**
+     * Returns the {@link FamFamFlags} instance for the given country code or
+     * {@code null} if no matching instance was found.
+     *
+     * <p>
+     * Unlike {@link #fromCountry(java.lang.String)} the code is matched
+     * case-insensitive, <code>"de"</code> and <code>"De"</code> both return
+     * {@link #GERMANY}. No objects are created during the lookup, so the code
+     * may be a view into a larger buffer (e.g. a {@link java.nio.CharBuffer}
+     * or a {@link StringBuilder}).
+     * </p>
+     *
+     * @param country The country code (usually an ISO 3166 2-letter code)
+     * @return The {@link FamFamFlags} instance or {@code null}
+     */
+    public static FamFamFlags fromCountryIgnoreCase(CharSequence country) {
+        if (country == null) {
+            return lookup(MISS_SLOT);
+        }
+        int length = country.length();
+        if (length == 2) {
+            return fromCountryIgnoreCase(country.charAt(0), country.charAt(1));
+        }
+        for (int i = 0; i < OTHER_FLAGS.size(); i++) {
+            if (equalsIgnoreCase(OTHER_FLAGS.get(i).country, country)) {
+                return lookup(LETTERS * LETTERS + i);
+            }
+        }
+        return lookup(MISS_SLOT);
+    }
+
+    /**
+     * Returns the {@link FamFamFlags} instance for the given 2-letter country
+     * code or {@code null} if no matching instance was found. The letters are
+     * matched case-insensitive.
+     *
+     * @param first The first letter of the ISO 3166 2-letter code
+     * @param second The second letter of the ISO 3166 2-letter code
+     * @return The {@link FamFamFlags} instance or {@code null}
+     */
+    public static FamFamFlags fromCountryIgnoreCase(char first,
+            char second) {
+        return lookup(slot(toUpperCase(first), toUpperCase(second)));
+    }
+
+    /**
+     * Returns the {@link FamFamFlags} instance for the ASCII encoded 2-letter
+     * country code at the given offset or {@code null} if no matching instance
+     * was found. The letters are matched case-insensitive.
+     *
+     * @param buf The buffer containing the ASCII (or UTF-8) encoded code
+     * @param offset The offset of the first letter of the code
+     * @return The {@link FamFamFlags} instance or {@code null}
+     * @throws ArrayIndexOutOfBoundsException If the buffer doesn't contain two
+     * bytes at the given offset
+     */
+    public static FamFamFlags fromCountryIgnoreCase(byte[] buf, int offset) {
+        return fromCountryIgnoreCase((char) (buf[offset] & 0xFF),
+                (char) (buf[offset + 1] & 0xFF));
+    }
+
+    /**
+     * Converts an ASCII letter to uppercase. All other characters are returned
+     * unchanged.
+     *
+     * @param c The character
+     * @return The uppercase character
+     */
+    private static char toUpperCase(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+
+    /**
+     * Compares an uppercase code with a char sequence ignoring the case of the
+     * ASCII letters.
+     *
+     * @param code The uppercase code
+     * @param chars The char sequence
+     * @return {@code true} if both are equal
+     */
+    private static boolean equalsIgnoreCase(String code, CharSequence chars) {
+        int length = code.length();
+        if (length != chars.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (code.charAt(i) != toUpperCase(chars.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the slot of a 2-letter code inside of {@link #TWO_LETTER_FLAGS}.
+     *
+     * @param first The first letter of the code
+     * @param second The second letter of the code
+     * @return The slot or {@link #MISS_SLOT} if one of the letters isn't an
+     * uppercase ASCII letter
+     */
+    static int slot(char first, char second) {
+        int a = first - 'A';
+        int b = second - 'A';
+        if (a < 0 || a >= LETTERS || b < 0 || b >= LETTERS) {
+            return MISS_SLOT;
+        }
+        return a * LETTERS + b;
+    }
+
+    /**
+     * Finishes a lookup: Records it if the {@link FlagMetrics} are enabled and
+     * returns the flag in the given slot.
+     *
+     * @param slot The slot the lookup ended in
+     * @return The {@link FamFamFlags} instance or {@code null}
+     */
+    private static FamFamFlags lookup(int slot) {
+        if (FlagMetrics.enabled) {
+            FlagMetrics.record(slot);
+        }
+        return getFlag(slot);
+    }
+
+    /**
+     * Gets the flag in the given slot.
+     *
+     * @param slot The slot
+     * @return The {@link FamFamFlags} instance or {@code null}
+     * @see #SLOTS
+     */
+    static FamFamFlags getFlag(int slot) {
+        if (slot < LETTERS * LETTERS) {
+            return TWO_LETTER_FLAGS[slot];
+        }
+        int other = slot - LETTERS * LETTERS;
+        return other < OTHER_FLAGS.size() ? OTHER_FLAGS.get(other) : null;
+    }
+
+    /**
+     * Gets the slot of the given flag.
+     *
+     * @param flag The flag
+     * @return The slot
+     * @see #SLOTS
+     */
+    static int slotOf(FamFamFlags flag) {
+        String country = flag.country;
+        if (country.length() == 2) {
+            return slot(country.charAt(0), country.charAt(1));
+        }
+        return LETTERS * LETTERS + OTHER_FLAGS.indexOf(flag);
+    }
+
+    /**
+     * Gets all flags, the two-letter flags ordered by code followed by the
+     * other flags.
+     *
+     * @return A new list of all flags
+     */
+    static List<FamFamFlags> getFlags() {
+        List<FamFamFlags> flags = new ArrayList<FamFamFlags>(
+                TWO_LETTER_FLAGS.length + OTHER_FLAGS.size());
+        for (FamFamFlags flag : TWO_LETTER_FLAGS) {
+            if (flag != null) {
+                flags.add(flag);
+            }
+        }
+        flags.addAll(OTHER_FLAGS);
+        return flags;
+    }
+
+    /**
+     * Gets the code a lookup of the given slot was made with.
+     *
+     * @param slot The slot
+     * @return The code or {@code null} for the {@link #MISS_SLOT} and unused
+     * slots
+     * @see #SLOTS
+     */
+    static String getCode(int slot) {
+        if (slot < LETTERS * LETTERS) {
+            return new String(new char[]{
+                (char) ('A' + slot / LETTERS), (char) ('A' + slot % LETTERS)});
+        }
+        FamFamFlags flag = getFlag(slot);
+        return flag != null ? flag.country : null;
+    }
+
+    /**
+     * Returns the {@link FamFamFlags} instance that fits the given HTTP
+     * <code>Accept-Language</code> header best or {@code null} if none of its
+     * languages matches a flag.
+     *
+     * <p>
+     * The language ranges are tried in the order of their quality values. A
+     * range with a region (<code>de-AT</code>) matches the flag of the region,
+     * a range with only a language (<code>de</code>) the flag of the country
+     * the language is most likely spoken in (<code>DE</code>). The results are
+     * cached by header.
+     * </p>
+     *
+     * @param header The <code>Accept-Language</code> header (e.g.
+     * <code>"de-CH, de;q=0.9, en;q=0.8"</code>)
+     * @return The {@link FamFamFlags} instance or {@code null}
+     */
+    public static FamFamFlags fromAcceptLanguage(String header) {
+        if (header == null) {
+            return lookup(MISS_SLOT);
+        }
+        return lookup(AcceptLanguage.slot(header));
+    }
+
+    /**
+     * Returns the {@link FamFamFlags} instance of the country of the given
+     * phone number or {@code null} if its calling code is unknown.
+     *
+     * <p>
+     * The number has to be in international format (e.g.
+     * <code>"+1 (604) 555-0100"</code>, <code>"0049 30 1234567"</code> or
+     * <code>"358401234567"</code>), spaces, dashes, dots, slashes and
+     * parentheses are skipped. Calling codes shared by several countries are
+     * resolved by the longest known prefix (e.g. <code>+1 604</code> is
+     * Canada, <code>+7 7</code> Kazakhstan). No objects are created during the
+     * lookup.
+     * </p>
+     *
+     * @param number The phone number
+     * @return The {@link FamFamFlags} instance or {@code null}
+     */
+    public static FamFamFlags fromPhoneNumber(CharSequence number) {
+        if (number == null) {
+            return lookup(MISS_SLOT);
+        }
+        return lookup(CallingCodes.slot(number));
     }
 
     /**
@@ -1406,6 +1777,85 @@ public final class FamFamFlags extends ExternalResource {
         return country;
     }
 
+    /**
+     * Gets the style names that render this flag from the sprite (e.g.
+     * <code>"famfamflags famfamflags-fi"</code>).
+     *
+     * @return The style names
+     * @see #getStyleName(java.lang.String)
+     * @see #SPRITE_STYLESHEET
+     */
+    public String getStyleName() {
+        // Racy single-check: Strings are immutable, so the worst case is that
+        // concurrent callers create equal copies.
+        String result = styleName;
+        if (result == null) {
+            styleName = result = getStyleName(country);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the metadata of this flag's icon (size, content hash and colors),
+     * generated when the add-on was built.
+     *
+     * @return The metadata or {@code null} if the add-on was built without
+     * metadata (e.g. when it is used directly from an IDE)
+     */
+    public FlagMetadata getMetadata() {
+        return FlagMetadata.of(this);
+    }
+
+    /**
+     * Gets the grayscale variant of this flag for disabled components.
+     *
+     * @return The variant
+     */
+    public FlagVariant disabled() {
+        return disabled;
+    }
+
+    /**
+     * Gets the half transparent variant of this flag for inactive rows and
+     * items.
+     *
+     * @return The variant
+     */
+    public FlagVariant translucent() {
+        return translucent;
+    }
+
+    /**
+     * Gets the given variant of this flag.
+     *
+     * @param type The type of the variant
+     * @return The variant
+     */
+    public FlagVariant getVariant(FlagVariant.Type type) {
+        switch (type) {
+            case DISABLED:
+                return disabled();
+            case TRANSLUCENT:
+                return translucent();
+            default:
+                throw new IllegalArgumentException("Unknown variant " + type);
+        }
+    }
+
+    /**
+     * Gets the url of this flag.
+     *
+     * @return The url of this flag
+     */
+    @Override
+    public String getURL() {
+        String result = url;
+        if (result == null) {
+            url = result = getIconUrl(country);
+        }
+        return result;
+    }
+
     /*
      * Override the original getMIMEType() method to return our own mimetype.
      */
@@ -1414,6 +1864,55 @@ public final class FamFamFlags extends ExternalResource {
         return MIMEType;
     }
 
+    /**
+     * Replaces this flag with its country code during serialization.
+     *
+     * @return The serialized form
+     */
+    private Object writeReplace() {
+        return new SerializedForm(country);
+    }
+
+    /**
+     * Prevents direct deserialization, flags are always serialized through
+     * {@link SerializedForm}.
+     *
+     * @param in The stream
+     * @throws InvalidObjectException Always
+     */
+    private void readObject(ObjectInputStream in)
+            throws InvalidObjectException {
+        throw new InvalidObjectException("SerializedForm required");
+    }
+
+    /**
+     * The serialized form of a flag. Only the country code is written and the
+     * canonical instance is restored on deserialization, so the flags keep
+     * their identity across session replication.
+     */
+    private static final class SerializedForm implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The flags country code
+         */
+        private final String country;
+
+        SerializedForm(String country) {
+            this.country = country;
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            FamFamFlags flag = fromCountry(country);
+            if (flag == null) {
+                throw new InvalidObjectException("Unknown flag " + country);
+            }
+            return flag;
+        }
+
+    }
+
     /**
      * <b>THIS METHOD MUST NOT BE USED!</b>
      *
@@ -0,0 +1,416 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * An immutable list of all flags with their country names in a given
+ * language.
+ *
+ * <p>
+ * Looking up the display names of all countries is slow (every name is a
+ * resource bundle lookup), so each catalog is created only once per language
+ * and shared: <code>de_DE</code>, <code>de_AT</code> and <code>de_CH</code>
+ * all get the German catalog. When several threads request the same catalog
+ * at the same time, one of them creates it and the others wait for it. The
+ * most recently used catalogs are cached, a catalog can safely be used by all
+ * UIs and sessions at the same time.
+ * </p>
+ *
+ * <p>
+ * The names of the flags without an ISO 3166 code (like
+ * {@link FamFamFlags#EUROPEANUNION}) are read from the bundled
+ * <code>flag-names.properties</code> and its translations.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * for (FlagCatalog.Entry entry : FlagCatalog.of(getLocale()).getEntries()) {<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;comboBox.addItem(entry.getFlag());<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;comboBox.setItemCaption(entry.getFlag(), entry.getName());<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;comboBox.setItemIcon(entry.getFlag(), entry.getFlag());<br>
+ * }<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class FlagCatalog implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Maximum number of cached catalogs.
+     */
+    private static final int MAX_CATALOGS = 32;
+
+    /**
+     * The cached catalogs by base locale.
+     */
+    private static final LruCache<Locale, FutureTask<FlagCatalog>> CACHE
+            = new LruCache<Locale, FutureTask<FlagCatalog>>(MAX_CATALOGS);
+
+    /**
+     * The resource bundle with the names of the flags without an ISO 3166
+     * code.
+     */
+    static final String NAMES = "eu.maxschuster.vaadin.famfamflags.flag-names";
+
+    /**
+     * The countries whose Chinese names are written in traditional script.
+     */
+    private static final List<String> TRADITIONAL_CHINESE_COUNTRIES
+            = Arrays.asList("TW", "HK", "MO");
+
+    /**
+     * The locale of the country names
+     */
+    private final Locale locale;
+
+    /**
+     * The entries ordered by country name
+     */
+    private final List<Entry> entries;
+
+    /**
+     * The entries ordered by country code
+     */
+    private final List<Entry> entriesInCodeOrder;
+
+    /**
+     * The entries by country code
+     */
+    private final Map<String, Entry> entriesByCode;
+
+    /**
+     * Creates a new {@link FlagCatalog} instance.
+     *
+     * @param locale The locale of the country names
+     */
+    private FlagCatalog(Locale locale) {
+        ResourceBundle names = ResourceBundle.getBundle(NAMES, locale,
+                FlagCatalog.class.getClassLoader(),
+                ResourceBundle.Control.getNoFallbackControl(
+                        ResourceBundle.Control.FORMAT_PROPERTIES));
+        List<FamFamFlags> flags = FamFamFlags.getFlags();
+        List<Entry> list = new ArrayList<Entry>(flags.size());
+        Map<String, Entry> byCode = new HashMap<String, Entry>(
+                flags.size() * 4 / 3 + 1);
+        for (FamFamFlags flag : flags) {
+            String code = flag.getCountry();
+            Entry entry = new Entry(flag, getDisplayName(code, locale, names));
+            list.add(entry);
+            byCode.put(code, entry);
+        }
+        List<Entry> inCodeOrder = new ArrayList<Entry>(list);
+        Collections.sort(inCodeOrder, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry o1, Entry o2) {
+                return o1.getCode().compareTo(o2.getCode());
+            }
+        });
+        final Collator collator = Collator.getInstance(locale);
+        Collections.sort(list, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry o1, Entry o2) {
+                return collator.compare(o1.name, o2.name);
+            }
+        });
+        this.locale = locale;
+        this.entries = Collections.unmodifiableList(list);
+        this.entriesInCodeOrder = Collections.unmodifiableList(inCodeOrder);
+        this.entriesByCode = byCode;
+    }
+
+    /**
+     * Gets the catalog with the country names in the given language.
+     *
+     * @param locale The locale of the country names, only its language is
+     * relevant (see {@link #getBaseLocale(java.util.Locale)})
+     * @return The shared catalog
+     */
+    public static FlagCatalog of(Locale locale) {
+        if (locale == null) {
+            throw new IllegalArgumentException("The locale must not be null");
+        }
+        final Locale base = getBaseLocale(locale);
+        FutureTask<FlagCatalog> task = CACHE.get(base);
+        if (task == null) {
+            FutureTask<FlagCatalog> newTask = new FutureTask<FlagCatalog>(
+                    new Callable<FlagCatalog>() {
+                        @Override
+                        public FlagCatalog call() {
+                            return new FlagCatalog(base);
+                        }
+                    });
+            task = CACHE.putIfAbsent(base, newTask);
+            if (task == newTask) {
+                task.run();
+            }
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            // Let the next caller try again
+            CACHE.remove(base, task);
+            throw new IllegalStateException(
+                    "Can't create the catalog of " + base, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "Interrupted while waiting for the catalog of " + base, e);
+        }
+    }
+
+    /**
+     * Gets the locale that determines the country names of the given locale.
+     * That's its language, only the Chinese names also depend on the country
+     * (simplified or traditional script).
+     *
+     * @param locale The locale
+     * @return The base locale
+     */
+    static Locale getBaseLocale(Locale locale) {
+        String language = locale.getLanguage();
+        if (language.equals(Locale.CHINESE.getLanguage())) {
+            return TRADITIONAL_CHINESE_COUNTRIES.contains(locale.getCountry())
+                    ? Locale.TRADITIONAL_CHINESE : Locale.SIMPLIFIED_CHINESE;
+        }
+        return new Locale(language);
+    }
+
+    /**
+     * Gets the display name of the given country code. The names of codes the
+     * JDK doesn't know (like <code>"ENGLAND"</code>) are taken from the given
+     * bundle, codes without a name are returned as they are.
+     *
+     * @param code The country code
+     * @param locale The locale of the name
+     * @param names The names of the codes without an ISO 3166 code
+     * @return The display name
+     */
+    private static String getDisplayName(String code, Locale locale,
+            ResourceBundle names) {
+        if (code.length() == 2) {
+            return new Locale("", code).getDisplayCountry(locale);
+        }
+        try {
+            return names.getString(code);
+        } catch (MissingResourceException e) {
+            return code;
+        }
+    }
+
+    /**
+     * Gets the locale of the country names. This is the base locale of the
+     * locale the catalog was requested with (e.g. <code>de</code> for
+     * <code>de_AT</code>).
+     *
+     * @return The locale
+     */
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Gets all entries ordered by country name.
+     *
+     * @return An unmodifiable list of all entries
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets all entries ordered by country code.
+     *
+     * @return An unmodifiable list of all entries
+     */
+    public List<Entry> getEntriesInCodeOrder() {
+        return entriesInCodeOrder;
+    }
+
+    /**
+     * Gets the entry of the given flag.
+     *
+     * @param flag The flag
+     * @return The entry
+     */
+    public Entry getEntry(FamFamFlags flag) {
+        return entriesByCode.get(flag.getCountry());
+    }
+
+    /**
+     * Gets the country name of the given flag.
+     *
+     * @param flag The flag
+     * @return The country name
+     */
+    public String getName(FamFamFlags flag) {
+        return getEntry(flag).getName();
+    }
+
+    /**
+     * Replaces this catalog with its locale during serialization.
+     *
+     * @return The serialized form
+     */
+    private Object writeReplace() {
+        return new SerializedForm(locale);
+    }
+
+    /**
+     * Prevents direct deserialization, catalogs are always serialized through
+     * {@link SerializedForm}.
+     *
+     * @param in The stream
+     * @throws InvalidObjectException Always
+     */
+    private void readObject(ObjectInputStream in)
+            throws InvalidObjectException {
+        throw new InvalidObjectException("SerializedForm required");
+    }
+
+    /**
+     * The serialized form of a {@link FlagCatalog}. Only the locale is
+     * written, deserialization returns the shared catalog.
+     */
+    private static final class SerializedForm implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The locale of the country names
+         */
+        private final Locale locale;
+
+        SerializedForm(Locale locale) {
+            this.locale = locale;
+        }
+
+        private Object readResolve() {
+            return of(locale);
+        }
+
+    }
+
+    /**
+     * A single flag of a {@link FlagCatalog}.
+     */
+    public static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The flag
+         */
+        private final FamFamFlags flag;
+
+        /**
+         * The localized country name
+         */
+        private final String name;
+
+        private Entry(FamFamFlags flag, String name) {
+            this.flag = flag;
+            this.name = name;
+        }
+
+        /**
+         * Gets the flag.
+         *
+         * @return The flag
+         */
+        public FamFamFlags getFlag() {
+            return flag;
+        }
+
+        /**
+         * Gets the country code of the flag.
+         *
+         * @return The country code
+         * @see FamFamFlags#getCountry()
+         */
+        public String getCode() {
+            return flag.getCountry();
+        }
+
+        /**
+         * Gets the localized country name.
+         *
+         * @return The country name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Checks if the country name or code contains the given text, ignoring
+         * case.
+         *
+         * @param text The text
+         * @return {@code true} if the name or code contains the text
+         */
+        public boolean matches(String text) {
+            return containsIgnoreCase(name, text)
+                    || containsIgnoreCase(flag.getCountry(), text);
+        }
+
+        /**
+         * Checks if the given string contains the given text, ignoring case.
+         * Doesn't allocate, so it can be used to scan all entries on every
+         * query.
+         *
+         * @param string The string
+         * @param text The text
+         * @return {@code true} if the string contains the text
+         */
+        private static boolean containsIgnoreCase(String string, String text) {
+            int max = string.length() - text.length();
+            for (int i = 0; i <= max; i++) {
+                if (string.regionMatches(true, i, text, 0, text.length())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import javax.imageio.ImageIO;
+
+/**
+ * Server-side access to the flag icons, e.g. for reports or PDF documents.
+ *
+ * <p>
+ * The icons are read from the {@link FlagStore} and decoded only once, the
+ * result is cached for the lifetime of the class loader. When several
+ * threads request the same flag at the same time, one of them decodes it and
+ * the others wait for the result.
+ * All methods return copies, so callers may modify the returned arrays and
+ * images freely.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * graphics.drawImage(FlagImages.getImage(FamFamFlags.FINLAND), x, y, null);<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class FlagImages {
+
+    /**
+     * The color model of {@link BufferedImage#TYPE_INT_ARGB} images.
+     */
+    private static final DirectColorModel ARGB
+            = (DirectColorModel) ColorModel.getRGBdefault();
+
+    /**
+     * The decoded icons by country code. Package-private for tests.
+     */
+    static final ConcurrentMap<String, FutureTask<Decoded>> CACHE
+            = new ConcurrentHashMap<String, FutureTask<Decoded>>(64);
+
+    private FlagImages() {
+    }
+
+    /**
+     * Gets the PNG bytes of the given flag.
+     *
+     * @param flag The flag
+     * @return A copy of the PNG bytes
+     * @throws IllegalStateException If the bundled icons can't be read
+     */
+    public static byte[] getPng(FamFamFlags flag) {
+        return FlagStore.copy(flag);
+    }
+
+    /**
+     * Writes the PNG bytes of the given flag without copying them.
+     *
+     * @param flag The flag
+     * @param out The stream to write to
+     * @throws IOException If writing fails
+     * @throws IllegalStateException If the bundled icons can't be read
+     */
+    public static void writePng(FamFamFlags flag, OutputStream out)
+            throws IOException {
+        FlagStore.write(flag, out);
+    }
+
+    /**
+     * Gets the width of the given flag in pixels.
+     *
+     * @param flag The flag
+     * @return The width
+     * @throws IllegalStateException If the bundled icon can't be read
+     */
+    public static int getWidth(FamFamFlags flag) {
+        return get(flag).width;
+    }
+
+    /**
+     * Gets the height of the given flag in pixels.
+     *
+     * @param flag The flag
+     * @return The height
+     * @throws IllegalStateException If the bundled icon can't be read
+     */
+    public static int getHeight(FamFamFlags flag) {
+        return get(flag).height;
+    }
+
+    /**
+     * Gets the pixels of the given flag as non-premultiplied ARGB values, row
+     * by row ({@link #getWidth(eu.maxschuster.vaadin.famfamflags.FamFamFlags)}
+     * values per row).
+     *
+     * @param flag The flag
+     * @return A copy of the pixels
+     * @throws IllegalStateException If the bundled icon can't be read
+     */
+    public static int[] getArgb(FamFamFlags flag) {
+        return get(flag).argb.clone();
+    }
+
+    /**
+     * Gets the given flag as {@link BufferedImage#TYPE_INT_ARGB} image.
+     *
+     * @param flag The flag
+     * @return A new image
+     * @throws IllegalStateException If the bundled icon can't be read
+     */
+    public static BufferedImage getImage(FamFamFlags flag) {
+        Decoded decoded = get(flag);
+        int[] pixels = decoded.argb.clone();
+        WritableRaster raster = Raster.createPackedRaster(
+                new DataBufferInt(pixels, pixels.length), decoded.width,
+                decoded.height, decoded.width, ARGB.getMasks(), null);
+        return new BufferedImage(ARGB, raster, false, null);
+    }
+
+    /**
+     * Gets the decoded icon, decodes it if this is the first request.
+     *
+     * @param flag The flag
+     * @return The decoded icon
+     */
+    private static Decoded get(final FamFamFlags flag) {
+        String country = flag.getCountry();
+        FutureTask<Decoded> task = CACHE.get(country);
+        if (task == null) {
+            FutureTask<Decoded> newTask = new FutureTask<Decoded>(
+                    new Callable<Decoded>() {
+                        @Override
+                        public Decoded call() throws IOException {
+                            return new Decoded(flag);
+                        }
+                    });
+            task = CACHE.putIfAbsent(country, newTask);
+            if (task == null) {
+                task = newTask;
+                task.run();
+            }
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            // Let the next caller try again
+            CACHE.remove(country, task);
+            throw new IllegalStateException(
+                    "Can't read the icon of flag " + country, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "Interrupted while waiting for the icon of flag "
+                    + country, e);
+        }
+    }
+
+    /**
+     * A read and decoded icon.
+     */
+    private static final class Decoded {
+
+        /**
+         * The width in pixels
+         */
+        private final int width;
+
+        /**
+         * The height in pixels
+         */
+        private final int height;
+
+        /**
+         * The non-premultiplied ARGB pixels, row by row
+         */
+        private final int[] argb;
+
+        Decoded(FamFamFlags flag) throws IOException {
+            BufferedImage image = ImageIO.read(FlagStore.open(flag));
+            if (image == null) {
+                throw new IOException("Can't decode the icon of flag "
+                        + flag.getCountry());
+            }
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+            this.argb = image.getRGB(0, 0, width, height, null, 0, width);
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * The manifest of the content-hashed flag icons generated at build time.
+ *
+ * <p>
+ * The manifest is loaded when this class is first used. Without a manifest
+ * (e.g. when the add-on is used directly from an IDE) the original file names
+ * are used.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+final class FlagManifest {
+
+    /**
+     * The classpath location of the manifest.
+     */
+    static final String MANIFEST = "manifest.properties";
+
+    /**
+     * Maps the country codes to the hashed file names.
+     */
+    private static final Properties FILE_NAMES = load();
+
+    private FlagManifest() {
+    }
+
+    /**
+     * Gets the file name of the icon of the given flag. Content-hashed if
+     * available.
+     *
+     * @param country The country code of the flag
+     * @return The file name
+     */
+    static String getFileName(String country) {
+        String fileName = FILE_NAMES.getProperty(country);
+        return fileName != null
+                ? fileName : country.toLowerCase(Locale.US) + ".png";
+    }
+
+    /**
+     * Gets the file name of a variant of the icon of the given flag.
+     * Content-hashed if available.
+     *
+     * @param country The country code of the flag
+     * @param variant The lowercase variant name (e.g. <code>disabled</code>)
+     * @return The file name
+     */
+    static String getFileName(String country, String variant) {
+        String fileName = FILE_NAMES.getProperty(country + '-' + variant);
+        return fileName != null ? fileName
+                : country.toLowerCase(Locale.US) + '-' + variant + ".png";
+    }
+
+    /**
+     * Gets the content hash of the icon of the given flag.
+     *
+     * @param country The country code of the flag
+     * @return The hash (e.g. <code>2a8c32196f</code>) or {@code null} if there
+     * is no content-hashed file
+     */
+    static String getHash(String country) {
+        String fileName = FILE_NAMES.getProperty(country);
+        if (fileName == null) {
+            return null;
+        }
+        // xx.<hash>.png
+        int end = fileName.length() - ".png".length();
+        return fileName.substring(fileName.lastIndexOf('.', end - 1) + 1, end);
+    }
+
+    private static Properties load() {
+        Properties properties = new Properties();
+        InputStream in = FlagManifest.class.getResourceAsStream(MANIFEST);
+        if (in != null) {
+            try {
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(
+                        "Can't read the flag manifest", e);
+            }
+        }
+        return properties;
+    }
+
+}
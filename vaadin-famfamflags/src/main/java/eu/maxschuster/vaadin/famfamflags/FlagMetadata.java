@@ -0,0 +1,267 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Properties;
+
+/**
+ * The metadata of a flag icon, generated when the add-on is built.
+ *
+ * <p>
+ * The metadata allows to reserve the space of a flag before it is loaded and
+ * to draw a placeholder in its color. No icon is decoded at runtime, the
+ * metadata of all flags is read from a small properties file on first use.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * FlagMetadata metadata = FamFamFlags.FINLAND.getMetadata();<br>
+ * image.setWidth(metadata.getWidth(), Unit.PIXELS);<br>
+ * image.setHeight(metadata.getHeight(), Unit.PIXELS);<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ * @see FamFamFlags#getMetadata()
+ */
+public final class FlagMetadata implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The classpath location of the metadata.
+     */
+    static final String METADATA = "metadata.properties";
+
+    /**
+     * The width in pixels
+     */
+    private final int width;
+
+    /**
+     * The height in pixels
+     */
+    private final int height;
+
+    /**
+     * The size of the PNG in bytes
+     */
+    private final int length;
+
+    /**
+     * The content hash
+     */
+    private final String hash;
+
+    /**
+     * The dominant RGB color
+     */
+    private final int dominantColor;
+
+    /**
+     * The average RGB color
+     */
+    private final int averageColor;
+
+    private FlagMetadata(int width, int height, int length, String hash,
+            int dominantColor, int averageColor) {
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.hash = hash;
+        this.dominantColor = dominantColor;
+        this.averageColor = averageColor;
+    }
+
+    /**
+     * Gets the metadata of the given flag.
+     *
+     * @param flag The flag
+     * @return The metadata or {@code null} if the add-on was built without
+     * metadata (e.g. when it is used directly from an IDE)
+     */
+    static FlagMetadata of(FamFamFlags flag) {
+        return Data.BY_SLOT[FamFamFlags.slotOf(flag)];
+    }
+
+    /**
+     * Gets the width of the icon.
+     *
+     * @return The width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the icon.
+     *
+     * @return The height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the size of the PNG file.
+     *
+     * @return The size in bytes
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Gets the content hash of the PNG file. It is part of the flag's url and
+     * changes whenever the icon changes.
+     *
+     * @return The first 10 hex digits of the SHA-1 hash
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Gets the color that covers most of the icon.
+     *
+     * @return The RGB color (<code>0xRRGGBB</code>)
+     */
+    public int getDominantColor() {
+        return dominantColor;
+    }
+
+    /**
+     * Gets the dominant color as CSS color.
+     *
+     * @return The CSS color (e.g. <code>"#f7f8f8"</code>)
+     * @see #getDominantColor()
+     */
+    public String getDominantColorCss() {
+        return toCss(dominantColor);
+    }
+
+    /**
+     * Gets the average color of the icon.
+     *
+     * @return The RGB color (<code>0xRRGGBB</code>)
+     */
+    public int getAverageColor() {
+        return averageColor;
+    }
+
+    /**
+     * Gets the average color as CSS color.
+     *
+     * @return The CSS color (e.g. <code>"#a7b9e2"</code>)
+     * @see #getAverageColor()
+     */
+    public String getAverageColorCss() {
+        return toCss(averageColor);
+    }
+
+    private static String toCss(int rgb) {
+        String hex = Integer.toHexString(rgb);
+        return "#000000".substring(0, 7 - hex.length()) + hex;
+    }
+
+    /**
+     * Parses a line of the metadata file.
+     *
+     * @param value The value (e.g.
+     * <code>16,11,489,2a8c32196f,f7f8f8,a7b9e2</code>)
+     * @return The metadata
+     */
+    private static FlagMetadata parse(String value) {
+        String[] fields = value.split(",");
+        if (fields.length != 6) {
+            throw new IllegalStateException("Malformed flag metadata "
+                    + value);
+        }
+        return new FlagMetadata(Integer.parseInt(fields[0]),
+                Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                fields[3], Integer.parseInt(fields[4], 16),
+                Integer.parseInt(fields[5], 16));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FlagMetadata)) {
+            return false;
+        }
+        FlagMetadata other = (FlagMetadata) obj;
+        return width == other.width && height == other.height
+                && length == other.length && hash.equals(other.hash)
+                && dominantColor == other.dominantColor
+                && averageColor == other.averageColor;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + ", " + length + " bytes, " + hash + ", "
+                + getDominantColorCss() + ", " + getAverageColorCss();
+    }
+
+    /**
+     * Holds the metadata of all flags. Loaded when it is first needed.
+     */
+    private static final class Data {
+
+        /**
+         * The metadata by slot of the flag
+         */
+        static final FlagMetadata[] BY_SLOT = load();
+
+        private static FlagMetadata[] load() {
+            FlagMetadata[] bySlot = new FlagMetadata[FamFamFlags.SLOTS];
+            InputStream in = FlagMetadata.class.getResourceAsStream(METADATA);
+            if (in == null) {
+                return bySlot;
+            }
+            Properties properties = new Properties();
+            try {
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(
+                        "Can't read the flag metadata", e);
+            }
+            for (FamFamFlags flag : FamFamFlags.getFlags()) {
+                String value = properties.getProperty(flag.getCountry());
+                if (value != null) {
+                    bySlot[FamFamFlags.slotOf(flag)] = parse(value);
+                }
+            }
+            return bySlot;
+        }
+
+    }
+
+}
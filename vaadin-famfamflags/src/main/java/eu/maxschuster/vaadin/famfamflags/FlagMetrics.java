@@ -0,0 +1,268 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Optional usage metrics of the {@link FamFamFlags} lookups.
+ *
+ * <p>
+ * Once enabled, every <code>fromCountry...(...)</code> and
+ * {@link FamFamFlags#fromLocale(java.util.Locale)} call is counted by the
+ * slot it ended in (the resolved flag or the requested code of a miss). The
+ * counters are striped by thread, so request threads don't contend. While
+ * disabled a lookup only reads one volatile flag.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * // Counts all lookups and publishes the metrics as<br>
+ * // eu.maxschuster.vaadin.famfamflags:type=FlagMetrics<br>
+ * FlagMetrics.enable();<br><br>
+ * // ServletContextListener.contextDestroyed()<br>
+ * FlagMetrics.disable();<br>
+ * </code>
+ * </p>
+ *
+ * <p>
+ * The platform MBean server is shared by all applications of the JVM. Call
+ * {@link #disable()} when the application is undeployed, otherwise the
+ * server keeps the registered metrics and with them the class loader of the
+ * application alive. Applications that share a server but have their own
+ * copy of the add-on have to register the metrics with distinct names, see
+ * {@link #enable(java.lang.String)}.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class FlagMetrics implements FlagMetricsMXBean {
+
+    /**
+     * The JMX object name of the metrics.
+     */
+    public static final String OBJECT_NAME
+            = "eu.maxschuster.vaadin.famfamflags:type=FlagMetrics";
+
+    /**
+     * The key of the misses with {@code null}, malformed or unknown long codes
+     * in {@link #getMissesByCode()}.
+     */
+    public static final String OTHER_CODES = "*";
+
+    /**
+     * The only instance.
+     */
+    private static final FlagMetrics INSTANCE = new FlagMetrics();
+
+    /**
+     * Read by {@link FamFamFlags} on every lookup.
+     */
+    static volatile boolean enabled;
+
+    /**
+     * The lookup counters by slot. Created on first {@link #enable()}.
+     */
+    private static volatile StripedCounters counters;
+
+    /**
+     * The name the metrics are registered with, {@code null} while they
+     * aren't registered.
+     */
+    private static ObjectName registeredName;
+
+    private FlagMetrics() {
+    }
+
+    /**
+     * Gets the metrics.
+     *
+     * @return The metrics
+     */
+    public static FlagMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts counting lookups and registers the metrics with the platform
+     * MBean server as {@link #OBJECT_NAME}.
+     *
+     * @throws IllegalStateException If the metrics can't be registered (e.g.
+     * because another application already uses the object name)
+     */
+    public static void enable() {
+        enable(OBJECT_NAME);
+    }
+
+    /**
+     * Starts counting lookups and registers the metrics with the platform
+     * MBean server under the given name (e.g. the {@link #OBJECT_NAME}
+     * followed by <code>",context=/shop"</code>).
+     * If the metrics are already registered under another name, they are
+     * moved to the given name.
+     *
+     * @param objectName The JMX object name
+     * @throws IllegalStateException If the metrics can't be registered (e.g.
+     * because another application already uses the object name)
+     */
+    public static synchronized void enable(String objectName) {
+        ObjectName name;
+        try {
+            name = new ObjectName(objectName);
+        } catch (JMException e) {
+            throw new IllegalArgumentException(
+                    "Invalid object name " + objectName, e);
+        }
+        if (!name.equals(registeredName)) {
+            unregister();
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                server.registerMBean(INSTANCE, name);
+            } catch (InstanceAlreadyExistsException e) {
+                throw new IllegalStateException("The object name " + name
+                        + " is already used by another application", e);
+            } catch (JMException e) {
+                throw new IllegalStateException(
+                        "Can't register the flag metrics", e);
+            }
+            registeredName = name;
+        }
+        if (counters == null) {
+            counters = new StripedCounters(FamFamFlags.SLOTS);
+        }
+        enabled = true;
+    }
+
+    /**
+     * Stops counting lookups and unregisters the metrics. The counters keep
+     * their values. Must be called when the application is undeployed.
+     */
+    public static synchronized void disable() {
+        enabled = false;
+        unregister();
+    }
+
+    /**
+     * Unregisters the metrics if this class has registered them. Never
+     * touches the metrics of other applications.
+     */
+    private static void unregister() {
+        if (registeredName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(registeredName);
+        } catch (InstanceNotFoundException e) {
+            // Already unregistered by someone else
+        } catch (JMException e) {
+            throw new IllegalStateException(
+                    "Can't unregister the flag metrics", e);
+        }
+        registeredName = null;
+    }
+
+    /**
+     * Counts a lookup.
+     *
+     * @param slot The slot the lookup ended in
+     * @see FamFamFlags#SLOTS
+     */
+    static void record(int slot) {
+        StripedCounters c = counters;
+        if (c != null) {
+            c.increment(slot);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public long getLookupCount() {
+        return getHitCount() + getMissCount();
+    }
+
+    @Override
+    public long getHitCount() {
+        return sum(true);
+    }
+
+    @Override
+    public long getMissCount() {
+        return sum(false);
+    }
+
+    @Override
+    public Map<String, Long> getResolutionsByFlag() {
+        return bySlot(true);
+    }
+
+    @Override
+    public Map<String, Long> getMissesByCode() {
+        return bySlot(false);
+    }
+
+    @Override
+    public void reset() {
+        StripedCounters c = counters;
+        if (c != null) {
+            c.reset();
+        }
+    }
+
+    private static long sum(boolean hits) {
+        StripedCounters c = counters;
+        long sum = 0;
+        if (c != null) {
+            for (int slot = 0; slot < c.length(); slot++) {
+                if ((FamFamFlags.getFlag(slot) != null) == hits) {
+                    sum += c.get(slot);
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static Map<String, Long> bySlot(boolean hits) {
+        StripedCounters c = counters;
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        if (c != null) {
+            for (int slot = 0; slot < c.length(); slot++) {
+                if ((FamFamFlags.getFlag(slot) != null) != hits) {
+                    continue;
+                }
+                long count = c.get(slot);
+                if (count > 0) {
+                    String code = FamFamFlags.getCode(slot);
+                    counts.put(code != null ? code : OTHER_CODES, count);
+                }
+            }
+        }
+        return counts;
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.util.Map;
+
+/**
+ * The JMX interface of the {@link FlagMetrics}.
+ *
+ * @author Max Schuster
+ */
+public interface FlagMetricsMXBean {
+
+    /**
+     * Checks if lookups are currently counted.
+     *
+     * @return {@code true} if lookups are counted
+     */
+    boolean isEnabled();
+
+    /**
+     * Gets the number of lookups.
+     *
+     * @return The number of lookups
+     */
+    long getLookupCount();
+
+    /**
+     * Gets the number of lookups that returned a flag.
+     *
+     * @return The number of hits
+     */
+    long getHitCount();
+
+    /**
+     * Gets the number of lookups that returned {@code null}.
+     *
+     * @return The number of misses
+     */
+    long getMissCount();
+
+    /**
+     * Gets the number of lookups that returned each flag. Flags that were
+     * never returned are left out.
+     *
+     * @return The resolutions by country code
+     */
+    Map<String, Long> getResolutionsByFlag();
+
+    /**
+     * Gets the number of lookups that returned {@code null} for each requested
+     * code. Lookups with {@code null} or malformed codes are counted as
+     * {@link FlagMetrics#OTHER_CODES}.
+     *
+     * @return The misses by requested code
+     */
+    Map<String, Long> getMissesByCode();
+
+    /**
+     * Sets all counters to zero.
+     */
+    void reset();
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import com.vaadin.server.BootstrapFragmentResponse;
+import com.vaadin.server.BootstrapListener;
+import com.vaadin.server.BootstrapPageResponse;
+import com.vaadin.server.ExternalResource;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.SessionInitEvent;
+import com.vaadin.server.SessionInitListener;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServletRequest;
+import com.vaadin.shared.ApplicationConstants;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jsoup.nodes.Element;
+
+/**
+ * A {@link BootstrapListener} that adds <code>&lt;link rel="preload"&gt;</code>
+ * hints for flags to the bootstrap page.
+ *
+ * <p>
+ * Without the hints the flags are only requested after the client engine has
+ * built the UI, so they are always the last thing to appear. With the hints
+ * the browser fetches them in parallel with the widgetset. Preload the sprite
+ * (stylesheet and image) if the UI uses the sprite style names and the
+ * frequently used flags if it uses the flags as icons.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * // VaadinServlet.servletInitialized()<br>
+ * FlagPreloadBootstrapListener.install(getService(), true,<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;FamFamFlags.GERMANY, FamFamFlags.FINLAND);<br>
+ * </code>
+ * </p>
+ *
+ * <p>
+ * Bootstrap listeners are only called for the bootstrap page, so the hints
+ * aren't added to embedded UIs.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public class FlagPreloadBootstrapListener implements BootstrapListener {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Preload the sprite stylesheet and image
+     */
+    private final boolean sprite;
+
+    /**
+     * The flags (or their variants) to preload
+     */
+    private final List<ExternalResource> resources;
+
+    /**
+     * Creates a new listener.
+     *
+     * @param sprite Preload the {@link FamFamFlags#SPRITE_STYLESHEET} and the
+     * {@link FamFamFlags#SPRITE_IMAGE}
+     * @param resources The flags (or their {@link FlagVariant}s) to preload
+     */
+    public FlagPreloadBootstrapListener(boolean sprite,
+            ExternalResource... resources) {
+        this.sprite = sprite;
+        this.resources = new ArrayList<ExternalResource>(
+                Arrays.asList(resources));
+    }
+
+    /**
+     * Adds a {@link FlagPreloadBootstrapListener} to every new session of the
+     * given service.
+     *
+     * @param service The service
+     * @param sprite Preload the {@link FamFamFlags#SPRITE_STYLESHEET} and the
+     * {@link FamFamFlags#SPRITE_IMAGE}
+     * @param resources The flags (or their {@link FlagVariant}s) to preload
+     */
+    public static void install(VaadinService service, boolean sprite,
+            ExternalResource... resources) {
+        final FlagPreloadBootstrapListener listener
+                = new FlagPreloadBootstrapListener(sprite, resources);
+        service.addSessionInitListener(new SessionInitListener() {
+            @Override
+            public void sessionInit(SessionInitEvent event)
+                    throws ServiceException {
+                event.getSession().addBootstrapListener(listener);
+            }
+        });
+    }
+
+    @Override
+    public void modifyBootstrapFragment(BootstrapFragmentResponse response) {
+        // The fragment has no head to add the hints to
+    }
+
+    @Override
+    public void modifyBootstrapPage(BootstrapPageResponse response) {
+        VaadinRequest request = response.getRequest();
+        Element head = response.getDocument().head();
+        if (sprite) {
+            addPreload(head, resolve(request, FamFamFlags.SPRITE_STYLESHEET),
+                    "style", "text/css");
+            addPreload(head, resolve(request, FamFamFlags.SPRITE_IMAGE),
+                    "image", FlagResources.MIME_TYPE);
+        }
+        for (ExternalResource resource : resources) {
+            addPreload(head, resolve(request, resource.getURL()), "image",
+                    resource.getMIMEType());
+        }
+    }
+
+    /**
+     * Adds a preload hint unless the head already has one for the same URL
+     * (e.g. because the listener has been added twice).
+     *
+     * @param head The head of the bootstrap page
+     * @param href The resolved URL
+     * @param as The kind of content
+     * @param type The MIME type
+     */
+    private static void addPreload(Element head, String href, String as,
+            String type) {
+        for (Element link : head.getElementsByTag("link")) {
+            if (link.attr("rel").equals("preload")
+                    && link.attr("href").equals(href)) {
+                return;
+            }
+        }
+        head.appendElement("link")
+                .attr("rel", "preload")
+                .attr("href", href)
+                .attr("as", as)
+                .attr("type", type);
+    }
+
+    /**
+     * Resolves the <code>vaadin://</code> and <code>app://</code> URLs the
+     * same way the client engine does.
+     *
+     * @param request The bootstrap request
+     * @param url The URL
+     * @return The resolved URL
+     */
+    static String resolve(VaadinRequest request, String url) {
+        if (url.startsWith(ApplicationConstants.VAADIN_PROTOCOL_PREFIX)) {
+            return request.getService().getStaticFileLocation(request)
+                    + "/VAADIN/" + url.substring(
+                            ApplicationConstants.VAADIN_PROTOCOL_PREFIX
+                            .length());
+        }
+        if (url.startsWith(ApplicationConstants.APP_PROTOCOL_PREFIX)
+                && request instanceof VaadinServletRequest) {
+            VaadinServletRequest servletRequest
+                    = (VaadinServletRequest) request;
+            return servletRequest.getContextPath()
+                    + servletRequest.getServletPath() + "/" + url.substring(
+                            ApplicationConstants.APP_PROTOCOL_PREFIX
+                            .length());
+        }
+        return url;
+    }
+
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import javax.imageio.ImageIO;
+
+/**
+ * Integer-scaled versions of the flag icons for high resolution displays.
+ *
+ * <p>
+ * The icons are tiny bitmaps, so the browser blurs them when it scales them
+ * up. A rendition scales an icon with nearest-neighbour sampling instead,
+ * every pixel becomes a sharp square of <code>scale &times; scale</code>
+ * pixels. The colors don't change, so the renditions are encoded with the
+ * palette of the icon.
+ * </p>
+ *
+ * <p>
+ * Renditions are created on demand and kept in a bounded LRU cache of
+ * {@link #MAX_CACHED_RENDITIONS} entries. When several threads request the
+ * same rendition at the same time, it is created only once and the other
+ * threads wait for it. The {@link FlagRequestHandler} serves the renditions as
+ * <code>xx@2x.&lt;hash&gt;.png</code>, see
+ * {@link FlagRequestHandler#getSrcset(FamFamFlags)}.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class FlagRenditions {
+
+    /**
+     * The smallest supported scale (the original icon).
+     */
+    public static final int MIN_SCALE = 1;
+
+    /**
+     * The largest supported scale.
+     */
+    public static final int MAX_SCALE = 4;
+
+    /**
+     * Maximum number of cached renditions.
+     */
+    static final int MAX_CACHED_RENDITIONS = 256;
+
+    /**
+     * The renditions by {@link #key(FamFamFlags, int)}. Package-private for
+     * tests.
+     */
+    static final LruCache<Integer, FutureTask<Rendition>> CACHE
+            = new LruCache<Integer, FutureTask<Rendition>>(
+                    MAX_CACHED_RENDITIONS);
+
+    private FlagRenditions() {
+    }
+
+    /**
+     * Checks if the given scale is supported.
+     *
+     * @param scale The scale
+     * @return {@code true} if the scale is between {@link #MIN_SCALE} and
+     * {@link #MAX_SCALE}
+     */
+    public static boolean isSupported(int scale) {
+        return scale >= MIN_SCALE && scale <= MAX_SCALE;
+    }
+
+    /**
+     * Gets a copy of the PNG of the given rendition.
+     *
+     * @param flag The flag
+     * @param scale The scale
+     * @return The PNG bytes
+     * @throws IllegalArgumentException If the scale isn't supported
+     * @throws IllegalStateException If the rendition can't be created
+     */
+    public static byte[] getPng(FamFamFlags flag, int scale) {
+        if (scale == MIN_SCALE) {
+            return FlagStore.copy(flag);
+        }
+        return get(flag, scale).png.clone();
+    }
+
+    /**
+     * Gets the size of the PNG of the given rendition.
+     *
+     * @param flag The flag
+     * @param scale The scale
+     * @return The size in bytes
+     * @throws IllegalArgumentException If the scale isn't supported
+     * @throws IllegalStateException If the rendition can't be created
+     */
+    public static int getLength(FamFamFlags flag, int scale) {
+        if (scale == MIN_SCALE) {
+            return FlagStore.getLength(flag);
+        }
+        return get(flag, scale).png.length;
+    }
+
+    /**
+     * Writes the PNG of the given rendition without copying it.
+     *
+     * @param flag The flag
+     * @param scale The scale
+     * @param out The stream to write to
+     * @throws IOException If writing fails
+     * @throws IllegalArgumentException If the scale isn't supported
+     * @throws IllegalStateException If the rendition can't be created
+     */
+    public static void write(FamFamFlags flag, int scale, OutputStream out)
+            throws IOException {
+        if (scale == MIN_SCALE) {
+            FlagStore.write(flag, out);
+        } else {
+            out.write(get(flag, scale).png);
+        }
+    }
+
+    /**
+     * Gets the quoted, strong ETag of the given rendition.
+     *
+     * @param flag The flag
+     * @param scale The scale
+     * @return The ETag
+     */
+    static String getETag(FamFamFlags flag, int scale) {
+        if (scale == MIN_SCALE) {
+            return FlagStore.getETag(flag);
+        }
+        return get(flag, scale).eTag;
+    }
+
+    /**
+     * Gets the rendition, creates it if it isn't cached.
+     *
+     * @param flag The flag
+     * @param scale The scale
+     * @return The rendition
+     */
+    private static Rendition get(final FamFamFlags flag, final int scale) {
+        if (!isSupported(scale)) {
+            throw new IllegalArgumentException("Unsupported scale " + scale);
+        }
+        Integer key = key(flag, scale);
+        FutureTask<Rendition> task = CACHE.get(key);
+        if (task == null) {
+            FutureTask<Rendition> newTask = new FutureTask<Rendition>(
+                    new Callable<Rendition>() {
+                        @Override
+                        public Rendition call() throws IOException {
+                            return new Rendition(flag, scale);
+                        }
+                    });
+            task = CACHE.putIfAbsent(key, newTask);
+            if (task == newTask) {
+                task.run();
+            }
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            // Let the next caller try again
+            CACHE.remove(key, task);
+            throw new IllegalStateException("Can't create the " + scale
+                    + "x rendition of flag " + flag.getCountry(),
+                    e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for "
+                    + "the " + scale + "x rendition of flag "
+                    + flag.getCountry(), e);
+        }
+    }
+
+    static Integer key(FamFamFlags flag, int scale) {
+        return FamFamFlags.slotOf(flag) * (MAX_SCALE + 1) + scale;
+    }
+
+    /**
+     * Scales the given pixels with nearest-neighbour sampling.
+     *
+     * @param argb The pixels, row by row
+     * @param width The width
+     * @param height The height
+     * @param scale The scale
+     * @return The scaled pixels, row by row
+     */
+    static int[] scale(int[] argb, int width, int height, int scale) {
+        int scaledWidth = width * scale;
+        int[] scaled = new int[scaledWidth * height * scale];
+        for (int y = 0; y < height; y++) {
+            int row = y * scale * scaledWidth;
+            for (int x = 0; x < width; x++) {
+                int pixel = argb[y * width + x];
+                for (int i = 0; i < scale; i++) {
+                    scaled[row + x * scale + i] = pixel;
+                }
+            }
+            for (int i = 1; i < scale; i++) {
+                System.arraycopy(scaled, row, scaled, row + i * scaledWidth,
+                        scaledWidth);
+            }
+        }
+        return scaled;
+    }
+
+    /**
+     * Creates an image of the given pixels. Uses a palette if there are no
+     * more than 256 colors.
+     *
+     * @param argb The pixels, row by row
+     * @param width The width
+     * @param height The height
+     * @return The image
+     */
+    static BufferedImage toImage(int[] argb, int width, int height) {
+        Map<Integer, Integer> indexes = new HashMap<Integer, Integer>();
+        for (int pixel : argb) {
+            if (!indexes.containsKey(pixel)) {
+                if (indexes.size() == 256) {
+                    BufferedImage image = new BufferedImage(width, height,
+                            BufferedImage.TYPE_INT_ARGB);
+                    image.setRGB(0, 0, width, height, argb, 0, width);
+                    return image;
+                }
+                indexes.put(pixel, indexes.size());
+            }
+        }
+        int[] palette = new int[indexes.size()];
+        for (Map.Entry<Integer, Integer> entry : indexes.entrySet()) {
+            palette[entry.getValue()] = entry.getKey();
+        }
+        IndexColorModel colorModel = new IndexColorModel(8, palette.length,
+                palette, 0, true, -1, DataBuffer.TYPE_BYTE);
+        BufferedImage image = new BufferedImage(width, height,
+                BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+        WritableRaster raster = image.getRaster();
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                row[x] = indexes.get(argb[y * width + x]);
+            }
+            raster.setPixels(0, y, width, 1, row);
+        }
+        return image;
+    }
+
+    /**
+     * A scaled and encoded icon.
+     */
+    static final class Rendition {
+
+        /**
+         * The PNG bytes
+         */
+        private final byte[] png;
+
+        /**
+         * The quoted, strong ETag
+         */
+        private final String eTag;
+
+        Rendition(FamFamFlags flag, int scale) throws IOException {
+            int width = FlagImages.getWidth(flag);
+            int height = FlagImages.getHeight(flag);
+            int[] scaled = scale(FlagImages.getArgb(flag), width, height,
+                    scale);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(2048);
+            if (!ImageIO.write(toImage(scaled, width * scale, height * scale),
+                    "png", out)) {
+                throw new IOException("No PNG encoder available");
+            }
+            this.png = out.toByteArray();
+            this.eTag = FlagResources.eTag(png);
+        }
+
+    }
+
+}
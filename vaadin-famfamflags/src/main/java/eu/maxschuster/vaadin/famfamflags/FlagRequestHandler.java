@@ -0,0 +1,374 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import com.vaadin.server.ExternalResource;
+import com.vaadin.server.RequestHandler;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.SessionInitEvent;
+import com.vaadin.server.SessionInitListener;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServletRequest;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.shared.ApplicationConstants;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * A {@link RequestHandler} that serves the flag icons from the
+ * {@link FlagStore} with strong caching headers.
+ *
+ * <p>
+ * The URLs contain the content hash of the icon (e.g.
+ * <code>fi.2a8c32196f.png</code>), so they change whenever the icon changes
+ * and are served with
+ * <code>Cache-Control: public, max-age=31536000, immutable</code>. URLs
+ * without (or with an outdated) hash are served with
+ * <code>Cache-Control: public, no-cache</code>, so the browsers revalidate
+ * them. Every icon has a strong <code>ETag</code> and conditional requests
+ * are answered with <code>304 Not Modified</code>.
+ * </p>
+ *
+ * <p>
+ * The <code>VaadinServlet</code> serves everything below
+ * <code>/VAADIN/</code> itself, so this handler uses its own path
+ * ({@link #PATH}). Use {@link #getResource(FamFamFlags)} to get resources
+ * pointing to it.
+ * </p>
+ *
+ * <p>
+ * The handler also serves the {@link FlagRenditions} for high resolution
+ * displays as <code>xx@2x.&lt;hash&gt;.png</code> up to
+ * <code>xx@4x.&lt;hash&gt;.png</code>.
+ * {@link #getSrcset(FamFamFlags)} returns a <code>srcset</code> attribute
+ * value listing all of them.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * // VaadinServlet.servletInitialized()<br>
+ * FlagRequestHandler.install(getService());<br><br>
+ * // UI<br>
+ * button.setIcon(FlagRequestHandler.getResource(FamFamFlags.FINLAND));<br>
+ * label.setValue("&lt;img src=\"" + FlagRequestHandler.getUrl(flag, 1)<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;+ "\" srcset=\"" + FlagRequestHandler.getSrcset(flag)
+ * + "\"&gt;");<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public class FlagRequestHandler implements RequestHandler {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The path of the icons relative to the servlet.
+     */
+    public static final String PATH = ApplicationConstants.APP_PATH
+            + "/famfamflags/";
+
+    /**
+     * The value of the <code>Cache-Control</code> header of URLs with the
+     * current content hash.
+     */
+    static final String CACHE_CONTROL
+            = "public, max-age=31536000, immutable";
+
+    /**
+     * The value of the <code>Cache-Control</code> header of URLs without
+     * the current content hash.
+     */
+    static final String REVALIDATE_CACHE_CONTROL = "public, no-cache";
+
+    /**
+     * The file extension of the icons.
+     */
+    private static final String EXTENSION = ".png";
+
+    /**
+     * Separates the flag name from the scale of a rendition
+     * (<code>xx@2x.2a8c32196f.png</code>).
+     */
+    private static final String SCALE_SEPARATOR = "@";
+
+    /**
+     * Separates the flag name from the content hash
+     * (<code>xx.2a8c32196f.png</code>).
+     */
+    private static final char HASH_SEPARATOR = '.';
+
+    /**
+     * The prefix of a weak ETag.
+     */
+    private static final String WEAK_PREFIX = "W/";
+
+    /**
+     * Registers a {@link FlagRequestHandler} for every new session of the given
+     * service and loads the icons into the {@link FlagStore}.
+     *
+     * @param service The service
+     */
+    public static void install(VaadinService service) {
+        FlagStore.warmUp();
+        service.addSessionInitListener(new SessionInitListener() {
+            @Override
+            public void sessionInit(SessionInitEvent event)
+                    throws ServiceException {
+                event.getSession().addRequestHandler(new FlagRequestHandler());
+            }
+        });
+    }
+
+    /**
+     * Gets a resource that loads the given flag through this handler.
+     *
+     * @param flag The flag
+     * @return The resource
+     */
+    public static ExternalResource getResource(FamFamFlags flag) {
+        return getResource(flag, FlagRenditions.MIN_SCALE);
+    }
+
+    /**
+     * Gets a resource that loads the given rendition of the flag through this
+     * handler.
+     *
+     * @param flag The flag
+     * @param scale The scale
+     * @return The resource
+     * @throws IllegalArgumentException If the scale isn't supported
+     */
+    public static ExternalResource getResource(FamFamFlags flag, int scale) {
+        return new ExternalResource(ApplicationConstants.APP_PROTOCOL_PREFIX
+                + getFileName(flag, scale), FlagResources.MIME_TYPE);
+    }
+
+    /**
+     * Gets the URL of the given rendition of the flag relative to the server
+     * root. Must be called while a request of a <code>VaadinServlet</code> is
+     * handled.
+     *
+     * @param flag The flag
+     * @param scale The scale
+     * @return The URL
+     * @throws IllegalArgumentException If the scale isn't supported
+     * @throws IllegalStateException If there is no current servlet request
+     */
+    public static String getUrl(FamFamFlags flag, int scale) {
+        return getBaseUrl() + getFileName(flag, scale);
+    }
+
+    /**
+     * Gets a <code>srcset</code> attribute value listing all renditions of the
+     * given flag. Must be called while a request of a
+     * <code>VaadinServlet</code> is handled.
+     *
+     * @param flag The flag
+     * @return The <code>srcset</code> value
+     * @throws IllegalStateException If there is no current servlet request
+     */
+    public static String getSrcset(FamFamFlags flag) {
+        return getSrcset(flag, getBaseUrl());
+    }
+
+    /**
+     * Gets a <code>srcset</code> attribute value listing all renditions of the
+     * given flag.
+     *
+     * @param flag The flag
+     * @param baseUrl The URL of the servlet, ending with <code>/</code> (e.g.
+     * <code>/context/app/</code>)
+     * @return The <code>srcset</code> value
+     */
+    public static String getSrcset(FamFamFlags flag, String baseUrl) {
+        StringBuilder sb = new StringBuilder();
+        for (int scale = FlagRenditions.MIN_SCALE;
+                scale <= FlagRenditions.MAX_SCALE; scale++) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(baseUrl).append(getFileName(flag, scale)).append(' ')
+                    .append(scale).append('x');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the path of the given rendition relative to the servlet. The path
+     * contains the content hash of the icon if it is known. The renditions
+     * are derived from the icon, so they share its hash.
+     *
+     * @param flag The flag
+     * @param scale The scale
+     * @return The path
+     */
+    private static String getFileName(FamFamFlags flag, int scale) {
+        if (!FlagRenditions.isSupported(scale)) {
+            throw new IllegalArgumentException("Unsupported scale " + scale);
+        }
+        String name = PATH + flag.getCountry().toLowerCase(Locale.US);
+        if (scale != FlagRenditions.MIN_SCALE) {
+            name += SCALE_SEPARATOR + scale + "x";
+        }
+        String hash = FlagManifest.getHash(flag.getCountry());
+        if (hash != null) {
+            name += HASH_SEPARATOR + hash;
+        }
+        return name + EXTENSION;
+    }
+
+    /**
+     * Gets the URL of the servlet handling the current request.
+     *
+     * @return The URL ending with <code>/</code>
+     */
+    private static String getBaseUrl() {
+        VaadinRequest request = VaadinService.getCurrentRequest();
+        if (!(request instanceof VaadinServletRequest)) {
+            throw new IllegalStateException(
+                    "No VaadinServlet request is currently handled");
+        }
+        VaadinServletRequest servletRequest = (VaadinServletRequest) request;
+        return servletRequest.getContextPath()
+                + servletRequest.getServletPath() + "/";
+    }
+
+    @Override
+    public boolean handleRequest(VaadinSession session, VaadinRequest request,
+            VaadinResponse response) throws IOException {
+        String pathInfo = request.getPathInfo();
+        if (pathInfo == null) {
+            return false;
+        }
+        int start = pathInfo.startsWith("/") ? 1 : 0;
+        if (!pathInfo.startsWith(PATH, start)
+                || !pathInfo.endsWith(EXTENSION)) {
+            return false;
+        }
+        String name = pathInfo.substring(start + PATH.length(),
+                pathInfo.length() - EXTENSION.length());
+        String hash = null;
+        int hashSeparator = name.indexOf(HASH_SEPARATOR);
+        if (hashSeparator != -1) {
+            hash = name.substring(hashSeparator + 1);
+            name = name.substring(0, hashSeparator);
+        }
+        int scale = parseScale(name);
+        if (scale == -1) {
+            response.sendError(404, "Unknown rendition " + name);
+            return true;
+        }
+        if (scale != FlagRenditions.MIN_SCALE) {
+            name = name.substring(0, name.lastIndexOf(SCALE_SEPARATOR));
+        }
+        FamFamFlags flag = FamFamFlags.fromCountryIgnoreCase(name);
+        if (flag == null) {
+            response.sendError(404, "Unknown flag " + name);
+            return true;
+        }
+
+        String eTag = FlagRenditions.getETag(flag, scale);
+        long lastModified = FlagStore.getLastModified(flag);
+        boolean versioned = hash != null
+                && hash.equals(FlagManifest.getHash(flag.getCountry()));
+        response.setHeader("ETag", eTag);
+        if (lastModified != 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+        response.setHeader("Cache-Control",
+                versioned ? CACHE_CONTROL : REVALIDATE_CACHE_CONTROL);
+        if (isNotModified(request, eTag, lastModified)) {
+            response.setStatus(304);
+            return true;
+        }
+
+        response.setStatus(200);
+        response.setContentType(FlagResources.MIME_TYPE);
+        response.setHeader("Content-Length",
+                String.valueOf(FlagRenditions.getLength(flag, scale)));
+        if (!"HEAD".equals(request.getMethod())) {
+            FlagRenditions.write(flag, scale, response.getOutputStream());
+        }
+        return true;
+    }
+
+    /**
+     * Parses the scale of a requested file name (<code>xx@2x</code>).
+     *
+     * @param name The file name without extension
+     * @return The scale, {@link FlagRenditions#MIN_SCALE} if the name has no
+     * scale or <code>-1</code> if the scale isn't supported
+     */
+    private static int parseScale(String name) {
+        int separator = name.lastIndexOf(SCALE_SEPARATOR);
+        if (separator == -1) {
+            return FlagRenditions.MIN_SCALE;
+        }
+        if (name.length() != separator + 3
+                || name.charAt(separator + 2) != 'x') {
+            return -1;
+        }
+        int scale = Character.digit(name.charAt(separator + 1), 10);
+        // xx@1x.png is no alias of xx.png, every icon has a single URL
+        return scale != FlagRenditions.MIN_SCALE
+                && FlagRenditions.isSupported(scale) ? scale : -1;
+    }
+
+    /**
+     * Checks the conditional headers of the request. <code>If-None-Match</code>
+     * takes precedence over <code>If-Modified-Since</code> and matches weak
+     * (<code>W/"..."</code>) tags as well.
+     *
+     * @param request The request
+     * @param eTag The ETag of the requested icon
+     * @param lastModified The last modified time of the requested icon or
+     * <code>0</code> if it is unknown
+     * @return {@code true} if the client already has the current icon
+     */
+    private static boolean isNotModified(VaadinRequest request, String eTag,
+            long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String match : ifNoneMatch.split(",")) {
+                match = match.trim();
+                // Weak comparison, proxies and gzip filters may weaken the tag
+                if (match.startsWith(WEAK_PREFIX)) {
+                    match = match.substring(WEAK_PREFIX.length());
+                }
+                if (match.equals("*") || match.equals(eTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (lastModified == 0) {
+            return false;
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            // Malformed date
+            return false;
+        }
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Access to the flag icons bundled with the add-on.
+ *
+ * @author Max Schuster
+ */
+final class FlagResources {
+
+    /**
+     * The classpath location of the icons.
+     */
+    static final String RESOURCE_PATH = "/VAADIN/addons/famfamflags/";
+
+    /**
+     * The MIME type of all icons.
+     */
+    static final String MIME_TYPE = "image/png";
+
+    /**
+     * The alphabet of the base64 encoding (RFC 4648).
+     */
+    private static final char[] BASE64
+            = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+            .toCharArray();
+
+    private FlagResources() {
+    }
+
+    /**
+     * Gets the classpath location of the icon of the given flag.
+     *
+     * @param country The country code of the flag
+     * @return The classpath location
+     */
+    static String getResourcePath(String country) {
+        return RESOURCE_PATH + country.toLowerCase(Locale.US) + ".png";
+    }
+
+    /**
+     * Reads the PNG bytes of the given flag from the classpath.
+     *
+     * @param country The country code of the flag
+     * @return The PNG bytes
+     * @throws IOException If the icon can't be read
+     */
+    static byte[] read(String country) throws IOException {
+        String path = getResourcePath(country);
+        InputStream in = FlagResources.class.getResourceAsStream(path);
+        if (in == null) {
+            throw new IOException("Missing flag icon " + path);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Encodes the given bytes with base64.
+     *
+     * @param bytes The bytes
+     * @return The base64 encoded bytes
+     */
+    static String base64(byte[] bytes) {
+        return base64(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Encodes a range of the given bytes with base64.
+     *
+     * @param bytes The bytes
+     * @param offset The offset of the first byte
+     * @param length The number of bytes
+     * @return The base64 encoded bytes
+     */
+    static String base64(byte[] bytes, int offset, int length) {
+        StringBuilder sb = new StringBuilder((length + 2) / 3 * 4);
+        int end = offset + length;
+        int i = offset;
+        for (; i + 2 < end; i += 3) {
+            int b = (bytes[i] & 0xFF) << 16 | (bytes[i + 1] & 0xFF) << 8
+                    | (bytes[i + 2] & 0xFF);
+            sb.append(BASE64[b >>> 18]).append(BASE64[b >>> 12 & 0x3F])
+                    .append(BASE64[b >>> 6 & 0x3F]).append(BASE64[b & 0x3F]);
+        }
+        int remaining = end - i;
+        if (remaining > 0) {
+            int b = (bytes[i] & 0xFF) << 16;
+            if (remaining == 2) {
+                b |= (bytes[i + 1] & 0xFF) << 8;
+            }
+            sb.append(BASE64[b >>> 18]).append(BASE64[b >>> 12 & 0x3F]);
+            sb.append(remaining == 2 ? BASE64[b >>> 6 & 0x3F] : '=');
+            sb.append('=');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the strong ETag of the given icon bytes.
+     *
+     * @param png The icon bytes
+     * @return The quoted ETag
+     */
+    static String eTag(byte[] png) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform must support SHA-1
+            throw new IllegalStateException(e);
+        }
+        byte[] hash = digest.digest(png);
+        StringBuilder sb = new StringBuilder(hash.length * 2 + 2).append('"');
+        for (byte b : hash) {
+            sb.append(Character.forDigit(b >> 4 & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.append('"').toString();
+    }
+
+}
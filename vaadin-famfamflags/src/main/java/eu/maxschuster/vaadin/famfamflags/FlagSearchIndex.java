@@ -0,0 +1,471 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * A search index over the localized country names of all flags, made for
+ * autocompletion.
+ *
+ * <p>
+ * The names of the {@link FlagCatalog}, the English names, the country codes
+ * and some well known aliases (like <code>"UK"</code> or
+ * <code>"Holland"</code>) are normalized once (see
+ * {@link #normalize(java.lang.CharSequence)}) and sorted, so a prefix query is
+ * a binary search. Names that contain the query somewhere else are found by
+ * a scan over the normalized names. Like the catalogs, the indexes are created
+ * once per language and shared.
+ * </p>
+ *
+ * <p>
+ * The results are ranked: exact matches first, then names starting with the
+ * query, names with a word starting with the query, aliases starting with the
+ * query and finally names containing the query. Equal ranks are ordered by
+ * name.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * List&lt;FlagCatalog.Entry&gt; matches = FlagSearchIndex.of(getLocale())<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;.search("ger", 10);<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class FlagSearchIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The classpath location of the aliases.
+     */
+    static final String ALIASES = "country-aliases.properties";
+
+    /**
+     * Maximum number of cached indexes.
+     */
+    private static final int MAX_INDEXES = 32;
+
+    /**
+     * The rank of a name, alias or code that equals the query.
+     */
+    private static final byte EXACT = 0;
+
+    /**
+     * The rank of a name starting with the query.
+     */
+    private static final byte NAME_PREFIX = 1;
+
+    /**
+     * The rank of a word of a name starting with the query.
+     */
+    private static final byte WORD_PREFIX = 2;
+
+    /**
+     * The rank of an alias or code starting with the query.
+     */
+    private static final byte ALIAS_PREFIX = 3;
+
+    /**
+     * The rank of a name containing the query.
+     */
+    private static final byte SUBSTRING = 4;
+
+    /**
+     * Marks entries that don't match.
+     */
+    private static final byte NO_MATCH = Byte.MAX_VALUE;
+
+    /**
+     * The cached indexes by the base locale of their catalog.
+     */
+    private static final LruCache<Locale, FlagSearchIndex> CACHE
+            = new LruCache<Locale, FlagSearchIndex>(MAX_INDEXES);
+
+    /**
+     * The catalog the index was created from
+     */
+    private final FlagCatalog catalog;
+
+    /**
+     * The normalized names, indexed like the entries of the catalog
+     */
+    private final String[] names;
+
+    /**
+     * The sorted, normalized terms (names, words, aliases and codes)
+     */
+    private final String[] terms;
+
+    /**
+     * The catalog entry index of each term
+     */
+    private final int[] termEntries;
+
+    /**
+     * The rank of each term if the query is a prefix of it
+     */
+    private final byte[] termRanks;
+
+    /**
+     * Creates a new {@link FlagSearchIndex} instance.
+     *
+     * @param catalog The catalog with the localized names
+     */
+    private FlagSearchIndex(FlagCatalog catalog) {
+        this.catalog = catalog;
+        List<FlagCatalog.Entry> entries = catalog.getEntries();
+        Properties aliases = Aliases.PROPERTIES;
+        FlagCatalog english = FlagCatalog.of(Locale.ENGLISH);
+        List<Term> list = new ArrayList<Term>(entries.size() * 4);
+        names = new String[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            FlagCatalog.Entry entry = entries.get(i);
+            String name = normalize(entry.getName());
+            names[i] = name;
+            list.add(new Term(name, i, NAME_PREFIX));
+            for (int j = name.indexOf(' '); j >= 0; j = name.indexOf(' ', j + 1)) {
+                list.add(new Term(name.substring(j + 1), i, WORD_PREFIX));
+            }
+            list.add(new Term(normalize(entry.getCode()), i, ALIAS_PREFIX));
+            String englishName = normalize(english.getName(entry.getFlag()));
+            if (!englishName.equals(name)) {
+                list.add(new Term(englishName, i, ALIAS_PREFIX));
+            }
+            String alias = aliases.getProperty(entry.getCode());
+            if (alias != null) {
+                for (String a : alias.split(",")) {
+                    list.add(new Term(normalize(a), i, ALIAS_PREFIX));
+                }
+            }
+        }
+        Collections.sort(list);
+        terms = new String[list.size()];
+        termEntries = new int[list.size()];
+        termRanks = new byte[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            Term term = list.get(i);
+            terms[i] = term.text;
+            termEntries[i] = term.entry;
+            termRanks[i] = term.rank;
+        }
+    }
+
+    /**
+     * Gets the index of the country names in the given language.
+     *
+     * @param locale The locale of the country names
+     * @return The shared index
+     */
+    public static FlagSearchIndex of(Locale locale) {
+        if (locale == null) {
+            throw new IllegalArgumentException("The locale must not be null");
+        }
+        FlagCatalog catalog = FlagCatalog.of(locale);
+        FlagSearchIndex index = CACHE.get(catalog.getLocale());
+        if (index == null) {
+            index = CACHE.putIfAbsent(catalog.getLocale(),
+                    new FlagSearchIndex(catalog));
+        }
+        return index;
+    }
+
+    /**
+     * Normalizes a text for searching: Accents are removed, letters without
+     * decomposition are folded (e.g. <code>&szlig;</code> to
+     * <code>ss</code>), everything is lowercase and punctuation is replaced
+     * by single spaces.
+     *
+     * @param text The text
+     * @return The normalized text
+     */
+    public static String normalize(CharSequence text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        boolean space = true;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            int type = Character.getType(c);
+            if (type == Character.NON_SPACING_MARK
+                    || type == Character.COMBINING_SPACING_MARK
+                    || type == Character.ENCLOSING_MARK) {
+                continue;
+            }
+            if (!Character.isLetterOrDigit(c)) {
+                if (!space) {
+                    sb.append(' ');
+                    space = true;
+                }
+                continue;
+            }
+            space = false;
+            switch (c) {
+                case 'ß':
+                    sb.append("ss");
+                    break;
+                case 'Æ':
+                case 'æ':
+                    sb.append("ae");
+                    break;
+                case 'Œ':
+                case 'œ':
+                    sb.append("oe");
+                    break;
+                case 'Ø':
+                case 'ø':
+                    sb.append('o');
+                    break;
+                case 'Ł':
+                case 'ł':
+                    sb.append('l');
+                    break;
+                case 'Đ':
+                case 'đ':
+                case 'Ð':
+                case 'ð':
+                    sb.append('d');
+                    break;
+                case 'Þ':
+                case 'þ':
+                    sb.append("th");
+                    break;
+                case 'ı':
+                    sb.append('i');
+                    break;
+                default:
+                    sb.append(Character.toLowerCase(c));
+            }
+        }
+        int length = sb.length();
+        if (length > 0 && sb.charAt(length - 1) == ' ') {
+            sb.setLength(length - 1);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the catalog the index was created from.
+     *
+     * @return The catalog
+     */
+    public FlagCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Searches the flags matching the given query.
+     *
+     * @param query The query. An empty query matches all flags.
+     * @return The matching entries, best matches first
+     */
+    public List<FlagCatalog.Entry> search(String query) {
+        return search(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches the flags matching the given query.
+     *
+     * @param query The query. An empty query matches all flags.
+     * @param limit The maximum number of results
+     * @return The matching entries, best matches first
+     */
+    public List<FlagCatalog.Entry> search(String query, int limit) {
+        List<FlagCatalog.Entry> entries = catalog.getEntries();
+        String q = query == null ? "" : normalize(query);
+        if (q.isEmpty()) {
+            return entries.subList(0, Math.min(limit, entries.size()));
+        }
+        byte[] ranks = rank(q);
+        List<FlagCatalog.Entry> result = new ArrayList<FlagCatalog.Entry>();
+        for (byte rank = EXACT; rank <= SUBSTRING; rank++) {
+            for (int i = 0; i < ranks.length; i++) {
+                if (ranks[i] == rank) {
+                    if (result.size() == limit) {
+                        return result;
+                    }
+                    result.add(entries.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the flags matching the given query.
+     *
+     * @param query The query. An empty query matches all flags.
+     * @return The number of matching flags
+     */
+    public int count(String query) {
+        String q = query == null ? "" : normalize(query);
+        if (q.isEmpty()) {
+            return names.length;
+        }
+        int count = 0;
+        for (byte rank : rank(q)) {
+            if (rank != NO_MATCH) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Ranks all entries.
+     *
+     * @param q The normalized, non-empty query
+     * @return The best rank of each entry or {@link #NO_MATCH}
+     */
+    private byte[] rank(String q) {
+        byte[] ranks = new byte[names.length];
+        Arrays.fill(ranks, NO_MATCH);
+        int first = Arrays.binarySearch(terms, q);
+        if (first < 0) {
+            first = -first - 1;
+        } else {
+            // Equal terms may precede the one found
+            while (first > 0 && terms[first - 1].equals(q)) {
+                first--;
+            }
+        }
+        for (int i = first; i < terms.length && terms[i].startsWith(q); i++) {
+            byte rank = terms[i].length() == q.length()
+                    && termRanks[i] != WORD_PREFIX ? EXACT : termRanks[i];
+            int entry = termEntries[i];
+            if (rank < ranks[entry]) {
+                ranks[entry] = rank;
+            }
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (ranks[i] == NO_MATCH && names[i].indexOf(q) > 0) {
+                ranks[i] = SUBSTRING;
+            }
+        }
+        return ranks;
+    }
+
+    /**
+     * Replaces this index with its locale during serialization.
+     *
+     * @return The serialized form
+     */
+    private Object writeReplace() {
+        return new SerializedForm(catalog.getLocale());
+    }
+
+    /**
+     * Prevents direct deserialization, indexes are always serialized through
+     * {@link SerializedForm}.
+     *
+     * @param in The stream
+     * @throws InvalidObjectException Always
+     */
+    private void readObject(ObjectInputStream in)
+            throws InvalidObjectException {
+        throw new InvalidObjectException("SerializedForm required");
+    }
+
+    /**
+     * The serialized form of a {@link FlagSearchIndex}. Only the locale is
+     * written, deserialization returns the shared index.
+     */
+    private static final class SerializedForm implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The locale of the country names
+         */
+        private final Locale locale;
+
+        SerializedForm(Locale locale) {
+            this.locale = locale;
+        }
+
+        private Object readResolve() {
+            return of(locale);
+        }
+
+    }
+
+    /**
+     * A normalized term pointing to a catalog entry.
+     */
+    private static final class Term implements Comparable<Term> {
+
+        private final String text;
+
+        private final int entry;
+
+        private final byte rank;
+
+        Term(String text, int entry, byte rank) {
+            this.text = text;
+            this.entry = entry;
+            this.rank = rank;
+        }
+
+        @Override
+        public int compareTo(Term o) {
+            return text.compareTo(o.text);
+        }
+
+    }
+
+    /**
+     * Holds the aliases, loaded when the first index is created.
+     */
+    private static final class Aliases {
+
+        private static final Properties PROPERTIES = load();
+
+        private static Properties load() {
+            Properties properties = new Properties();
+            InputStream in = FlagSearchIndex.class.getResourceAsStream(ALIASES);
+            if (in == null) {
+                throw new IllegalStateException(
+                        "Can't find the country aliases " + ALIASES);
+            }
+            try {
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(
+                        "Can't read the country aliases", e);
+            }
+            return properties;
+        }
+
+    }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Keeps the PNG bytes of all flag icons in memory.
+ *
+ * <p>
+ * All icons are read from the classpath at once into a single contiguous
+ * array, an offset index points to the icon of each flag. After loading, the
+ * icons are served and decoded without any further classpath (jar) access
+ * and without copying. Loading happens on first use; call {@link #warmUp()}
+ * at startup (e.g. through the {@link FlagStoreWarmUpListener}) to take that
+ * cost before the first request.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * response.setContentLength(FlagStore.getLength(flag));<br>
+ * FlagStore.write(flag, response.getOutputStream());<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class FlagStore {
+
+    /**
+     * The loaded icons, {@code null} until the first successful load.
+     */
+    private static volatile Data loaded;
+
+    private FlagStore() {
+    }
+
+    /**
+     * Loads all icons unless they have already been loaded.
+     *
+     * @throws IllegalStateException If a bundled icon can't be read, the
+     * next call tries again
+     */
+    public static void warmUp() {
+        data();
+    }
+
+    /**
+     * Gets the size of the PNG of the given flag.
+     *
+     * @param flag The flag
+     * @return The size in bytes
+     * @throws IllegalStateException If the bundled icons can't be read
+     */
+    public static int getLength(FamFamFlags flag) {
+        return data().lengths[FamFamFlags.slotOf(flag)];
+    }
+
+    /**
+     * Writes the PNG of the given flag straight from the store.
+     *
+     * @param flag The flag
+     * @param out The stream to write to
+     * @throws IOException If writing fails
+     * @throws IllegalStateException If the bundled icons can't be read
+     */
+    public static void write(FamFamFlags flag, OutputStream out)
+            throws IOException {
+        Data data = data();
+        int slot = FamFamFlags.slotOf(flag);
+        out.write(data.bytes, data.offsets[slot], data.lengths[slot]);
+    }
+
+    /**
+     * Gets a read-only view of the PNG of the given flag. The bytes are not
+     * copied.
+     *
+     * @param flag The flag
+     * @return The PNG bytes
+     * @throws IllegalStateException If the bundled icons can't be read
+     */
+    public static ByteBuffer getBuffer(FamFamFlags flag) {
+        Data data = data();
+        int slot = FamFamFlags.slotOf(flag);
+        return ByteBuffer.wrap(data.bytes, data.offsets[slot],
+                data.lengths[slot]).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the total size of all icons.
+     *
+     * @return The size in bytes
+     * @throws IllegalStateException If the bundled icons can't be read
+     */
+    public static int getTotalLength() {
+        return data().bytes.length;
+    }
+
+    /**
+     * Gets a copy of the PNG of the given flag.
+     *
+     * @param flag The flag
+     * @return The PNG bytes
+     */
+    static byte[] copy(FamFamFlags flag) {
+        Data data = data();
+        int slot = FamFamFlags.slotOf(flag);
+        byte[] png = new byte[data.lengths[slot]];
+        System.arraycopy(data.bytes, data.offsets[slot], png, 0, png.length);
+        return png;
+    }
+
+    /**
+     * Opens a stream over the PNG of the given flag.
+     *
+     * @param flag The flag
+     * @return The stream
+     */
+    static InputStream open(FamFamFlags flag) {
+        Data data = data();
+        int slot = FamFamFlags.slotOf(flag);
+        return new ByteArrayInputStream(data.bytes, data.offsets[slot],
+                data.lengths[slot]);
+    }
+
+    /**
+     * Encodes the PNG of the given flag with base64.
+     *
+     * @param flag The flag
+     * @return The base64 encoded PNG
+     */
+    static String base64(FamFamFlags flag) {
+        Data data = data();
+        int slot = FamFamFlags.slotOf(flag);
+        return FlagResources.base64(data.bytes, data.offsets[slot],
+                data.lengths[slot]);
+    }
+
+    /**
+     * Gets the quoted, strong ETag of the given flag.
+     *
+     * @param flag The flag
+     * @return The ETag
+     */
+    static String getETag(FamFamFlags flag) {
+        return data().etags[FamFamFlags.slotOf(flag)];
+    }
+
+    /**
+     * Gets the time the icon of the given flag was last modified (with a
+     * precision of seconds).
+     *
+     * @param flag The flag
+     * @return The time in milliseconds or <code>0</code> if the classpath
+     * doesn't know it
+     */
+    static long getLastModified(FamFamFlags flag) {
+        return data().lastModified[FamFamFlags.slotOf(flag)];
+    }
+
+    /**
+     * Gets the loaded icons, loads them if this is the first use or an
+     * earlier load failed.
+     *
+     * @return The loaded icons
+     * @throws IllegalStateException If a bundled icon can't be read
+     */
+    private static Data data() {
+        Data data = loaded;
+        if (data == null) {
+            synchronized (FlagStore.class) {
+                data = loaded;
+                if (data == null) {
+                    data = new Data();
+                    loaded = data;
+                }
+            }
+        }
+        return data;
+    }
+
+    /**
+     * The loaded icons.
+     */
+    private static final class Data {
+
+        /**
+         * The PNG bytes of all icons
+         */
+        final byte[] bytes;
+
+        /**
+         * The offset of each icon inside of {@link #bytes} by slot
+         */
+        final int[] offsets = new int[FamFamFlags.SLOTS];
+
+        /**
+         * The length of each icon by slot
+         */
+        final int[] lengths = new int[FamFamFlags.SLOTS];
+
+        /**
+         * The ETag of each icon by slot
+         */
+        final String[] etags = new String[FamFamFlags.SLOTS];
+
+        /**
+         * The last modified time of each icon by slot
+         */
+        final long[] lastModified = new long[FamFamFlags.SLOTS];
+
+        /**
+         * Reads all icons from the classpath.
+         *
+         * @throws IllegalStateException If a bundled icon can't be read
+         */
+        Data() {
+            List<FamFamFlags> flags = FamFamFlags.getFlags();
+            byte[][] icons = new byte[flags.size()][];
+            int total = 0;
+            for (int i = 0; i < icons.length; i++) {
+                String country = flags.get(i).getCountry();
+                try {
+                    icons[i] = FlagResources.read(country);
+                    lastModified[FamFamFlags.slotOf(flags.get(i))]
+                            = lastModified(country);
+                } catch (IOException e) {
+                    throw new IllegalStateException(
+                            "Can't read the icon of flag " + country, e);
+                }
+                total += icons[i].length;
+            }
+            bytes = new byte[total];
+            int offset = 0;
+            for (int i = 0; i < icons.length; i++) {
+                int slot = FamFamFlags.slotOf(flags.get(i));
+                System.arraycopy(icons[i], 0, bytes, offset, icons[i].length);
+                offsets[slot] = offset;
+                lengths[slot] = icons[i].length;
+                etags[slot] = FlagResources.eTag(icons[i]);
+                offset += icons[i].length;
+            }
+        }
+
+        private static long lastModified(String country) throws IOException {
+            URL url = FlagResources.class.getResource(
+                    FlagResources.getResourcePath(country));
+            long lastModified = url != null
+                    ? url.openConnection().getLastModified() : 0;
+            // HTTP dates only have a precision of seconds. Unknown times stay
+            // unknown, any fallback would differ between cluster nodes.
+            return lastModified > 0 ? lastModified / 1000 * 1000 : 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * Loads all flag icons into the {@link FlagStore} when the web application
+ * starts, so the first requests don't have to read them from the add-on jar.
+ *
+ * <p>
+ * <b>Typical use case (web.xml):</b><br><br>
+ * <code>
+ * &lt;listener&gt;<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&lt;listener-class&gt;eu.maxschuster.vaadin.famfamflags.FlagStoreWarmUpListener&lt;/listener-class&gt;<br>
+ * &lt;/listener&gt;<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public class FlagStoreWarmUpListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        FlagStore.warmUp();
+        sce.getServletContext().log("Loaded " + FlagStore.getTotalLength()
+                + " bytes of flag icons");
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+    }
+
+}
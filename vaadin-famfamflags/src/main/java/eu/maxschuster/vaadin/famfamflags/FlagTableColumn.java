@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import com.vaadin.ui.Table;
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * A Vaadin 7 {@link Table} column that displays flags without creating a
+ * component per cell.
+ *
+ * <p>
+ * The column is a generated column with empty cells. The flag is drawn by the
+ * {@link FamFamFlags#SPRITE_STYLESHEET sprite stylesheet} based on the cell
+ * style name, which is set by this class acting as the tables
+ * {@link Table.CellStyleGenerator}. A previously set cell style generator
+ * still handles all other cells.
+ * </p>
+ *
+ * <p>
+ * Returning <code>new Image(null, flag)</code> from a column generator
+ * creates a server-side component with its own connector and state for every
+ * rendered row. With the default page length of 15 and cache rate of 2 the
+ * Table renders 75 rows, so that are 75 components on the first page and 75
+ * more for every scrolled page. This column creates none; each cell only
+ * transfers its style name.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * &#64;StyleSheet(FamFamFlags.SPRITE_STYLESHEET)<br>
+ * public class MyUI extends UI { ... }<br><br>
+ * FlagTableColumn.addTo(table, "flag", new FlagProvider() {<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;public FamFamFlags getFlag(Object itemId) {<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;return ((Person) itemId).getFlag();<br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;}<br>
+ * });<br>
+ * </code>
+ * </p>
+ *
+ * <p>
+ * <b>Vaadin 7 only</b>, in Vaadin 8 use the <code>FlagRenderer</code> of the
+ * <code>vaadin-famfamflags-v8</code> add-on.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public class FlagTableColumn implements Table.ColumnGenerator,
+        Table.CellStyleGenerator {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Resolves the flag of a Table item.
+     */
+    public interface FlagProvider extends Serializable {
+
+        /**
+         * Gets the flag of the given item.
+         *
+         * @param itemId The item id
+         * @return The flag or {@code null} to leave the cell empty
+         */
+        FamFamFlags getFlag(Object itemId);
+
+    }
+
+    /**
+     * The prefix of the cell style names.
+     */
+    private static final String CELL_STYLE_PREFIX = "famfamflags-";
+
+    /**
+     * The id of the flag column
+     */
+    private final Object columnId;
+
+    /**
+     * Resolves the flags
+     */
+    private final FlagProvider provider;
+
+    /**
+     * The previous cell style generator of the table (may be {@code null})
+     */
+    private final Table.CellStyleGenerator delegate;
+
+    /**
+     * Creates a new {@link FlagTableColumn} instance.
+     *
+     * @param columnId The id of the flag column
+     * @param provider Resolves the flags
+     * @param delegate Generates the styles of all other cells (may be
+     * {@code null})
+     */
+    public FlagTableColumn(Object columnId, FlagProvider provider,
+            Table.CellStyleGenerator delegate) {
+        this.columnId = columnId;
+        this.provider = provider;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Adds a flag column to the given table.
+     *
+     * @param table The table
+     * @param columnId The id of the new flag column
+     * @param provider Resolves the flags
+     * @return The new column
+     */
+    public static FlagTableColumn addTo(Table table, Object columnId,
+            FlagProvider provider) {
+        FlagTableColumn column = new FlagTableColumn(columnId, provider,
+                table.getCellStyleGenerator());
+        table.addGeneratedColumn(columnId, column);
+        table.setCellStyleGenerator(column);
+        return column;
+    }
+
+    /**
+     * Gets the cell style name that displays the given flag in a table cell
+     * (e.g. <code>"famfamflags-fi"</code>).
+     *
+     * @param flag The flag
+     * @return The cell style name
+     */
+    public static String getCellStyleName(FamFamFlags flag) {
+        return CELL_STYLE_PREFIX + flag.getCountry().toLowerCase(Locale.US);
+    }
+
+    @Override
+    public Object generateCell(Table source, Object itemId, Object columnId) {
+        // The flag is drawn by the cell style
+        return null;
+    }
+
+    @Override
+    public String getStyle(Table source, Object itemId, Object propertyId) {
+        if (columnId.equals(propertyId)) {
+            FamFamFlags flag = provider.getFlag(itemId);
+            return flag != null ? getCellStyleName(flag) : null;
+        }
+        return delegate != null
+                ? delegate.getStyle(source, itemId, propertyId) : null;
+    }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import com.vaadin.server.ExternalResource;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * A pre-generated variant of a flag icon, e.g. the grayscale icon of a
+ * disabled component.
+ *
+ * <p>
+ * The variants are generated when the add-on is built, so the browser doesn't
+ * have to apply CSS filters to every icon. Every {@link FamFamFlags} instance
+ * holds exactly one instance of each variant, deserialization restores it.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * button.setIcon(FamFamFlags.FINLAND.disabled());<br>
+ * item.setIcon(FamFamFlags.FINLAND.translucent());<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ * @see FamFamFlags#disabled()
+ * @see FamFamFlags#translucent()
+ */
+public final class FlagVariant extends ExternalResource {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The kinds of variants. The build uses the same conversions to generate
+     * the icons and sprites of each variant.
+     */
+    public enum Type {
+
+        /**
+         * Grayscale icon for disabled components.
+         */
+        DISABLED {
+            @Override
+            public int apply(int argb) {
+                int r = argb >> 16 & 0xFF;
+                int g = argb >> 8 & 0xFF;
+                int b = argb & 0xFF;
+                // Rec. 601 luma, rounded
+                int y = (299 * r + 587 * g + 114 * b + 500) / 1000;
+                return argb & 0xFF000000 | y << 16 | y << 8 | y;
+            }
+        },
+        /**
+         * Half transparent icon for inactive rows and items.
+         */
+        TRANSLUCENT {
+            @Override
+            public int apply(int argb) {
+                int alpha = ((argb >>> 24) + 1) / 2;
+                return alpha << 24 | argb & 0xFFFFFF;
+            }
+        };
+
+        /**
+         * Gets the lowercase name used in file and style names.
+         *
+         * @return The name
+         */
+        public String getName() {
+            return name().toLowerCase(Locale.US);
+        }
+
+        /**
+         * Converts a single non-premultiplied ARGB pixel of an original icon
+         * (e.g. of {@link FlagImages#getArgb(FamFamFlags)}) into this
+         * variant.
+         *
+         * @param argb The original pixel
+         * @return The converted pixel
+         */
+        public abstract int apply(int argb);
+
+    }
+
+    /**
+     * The MIME type of this variant
+     */
+    private final String MIMEType;
+
+    /**
+     * The flag
+     */
+    private final FamFamFlags flag;
+
+    /**
+     * The type of this variant
+     */
+    private final Type type;
+
+    /**
+     * The icon url. Created on first use by {@link #getURL()}.
+     */
+    private String url;
+
+    /**
+     * Creates a new variant. Only used by {@link FamFamFlags}.
+     *
+     * @param flag The flag
+     * @param type The type
+     * @param iconPath The path where the icons are located
+     */
+    FlagVariant(FamFamFlags flag, Type type, String iconPath) {
+        // The real url is created lazily by getURL()
+        super(iconPath, null);
+        this.flag = flag;
+        this.type = type;
+        this.MIMEType = FlagResources.MIME_TYPE;
+    }
+
+    /**
+     * Gets the flag of this variant.
+     *
+     * @return The flag
+     */
+    public FamFamFlags getFlag() {
+        return flag;
+    }
+
+    /**
+     * Gets the type of this variant.
+     *
+     * @return The type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the style names that render this variant from the sprite (e.g.
+     * <code>"famfamflags famfamflags-fi famfamflags-disabled"</code>).
+     *
+     * @return The style names
+     * @see FamFamFlags#SPRITE_STYLESHEET
+     */
+    public String getStyleName() {
+        return flag.getStyleName() + " " + FamFamFlags.STYLE_NAME + "-"
+                + type.getName();
+    }
+
+    /**
+     * Gets the url of this variant.
+     *
+     * @return The url of this variant
+     */
+    @Override
+    public String getURL() {
+        String result = url;
+        if (result == null) {
+            url = result = super.getURL() + FlagManifest.getFileName(
+                    flag.getCountry(), type.getName());
+        }
+        return result;
+    }
+
+    /*
+     * Override the original getMIMEType() method to return our own mimetype.
+     */
+    @Override
+    public String getMIMEType() {
+        return MIMEType;
+    }
+
+    /**
+     * Replaces this variant with its flag and type during serialization.
+     *
+     * @return The serialized form
+     */
+    private Object writeReplace() {
+        return new SerializedForm(flag, type);
+    }
+
+    /**
+     * Prevents direct deserialization, variants are always serialized through
+     * {@link SerializedForm}.
+     *
+     * @param in The stream
+     * @throws InvalidObjectException Always
+     */
+    private void readObject(ObjectInputStream in)
+            throws InvalidObjectException {
+        throw new InvalidObjectException("SerializedForm required");
+    }
+
+    /**
+     * The serialized form of a variant. The canonical instance is restored on
+     * deserialization.
+     */
+    private static final class SerializedForm implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The flag, serialized as its own canonical form
+         */
+        private final FamFamFlags flag;
+
+        /**
+         * The type of the variant
+         */
+        private final Type type;
+
+        SerializedForm(FamFamFlags flag, Type type) {
+            this.flag = flag;
+            this.type = type;
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            return flag.getVariant(type);
+        }
+
+    }
+
+    /**
+     * <b>THIS METHOD MUST NOT BE USED!</b>
+     *
+     * @param mimeType The new MIME type
+     * @deprecated
+     * @throws UnsupportedOperationException On every method call!
+     */
+    @Deprecated
+    @Override
+    public void setMIMEType(String mimeType) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import com.vaadin.server.ExternalResource;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A flag that is embedded into the page as a
+ * <code>data:image/png;base64,...</code> URI.
+ *
+ * <p>
+ * The icons are tiny, so embedding them costs less than the extra HTTP request
+ * of a {@link FamFamFlags} icon. The icon is read and encoded only once per
+ * flag, all later calls of {@link #of(FamFamFlags)} return the cached
+ * instance.
+ * </p>
+ *
+ * <p>
+ * <b>Typical use case:</b><br><br>
+ * <code>
+ * button.setIcon(InlineFlag.of(FamFamFlags.FINLAND));<br>
+ * </code>
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class InlineFlag extends ExternalResource {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The prefix of all data URIs.
+     */
+    private static final String DATA_URI_PREFIX
+            = "data:" + FlagResources.MIME_TYPE + ";base64,";
+
+    /**
+     * The already encoded flags by country code.
+     */
+    private static final ConcurrentMap<String, InlineFlag> CACHE
+            = new ConcurrentHashMap<String, InlineFlag>(64);
+
+    /**
+     * The flag this inline flag was created from
+     */
+    private final FamFamFlags flag;
+
+    /**
+     * Creates a new {@link InlineFlag} instance.
+     *
+     * @param flag The flag
+     * @param dataUri The data URI of the flag
+     */
+    private InlineFlag(FamFamFlags flag, String dataUri) {
+        super(dataUri, FlagResources.MIME_TYPE);
+        this.flag = flag;
+    }
+
+    /**
+     * Gets the inline version of the given flag.
+     *
+     * @param flag The flag
+     * @return The inline flag
+     * @throws IllegalStateException If the bundled icon can't be read
+     */
+    public static InlineFlag of(FamFamFlags flag) {
+        String country = flag.getCountry();
+        InlineFlag inlineFlag = CACHE.get(country);
+        if (inlineFlag == null) {
+            inlineFlag = new InlineFlag(flag, DATA_URI_PREFIX
+                    + FlagStore.base64(flag));
+            InlineFlag existing = CACHE.putIfAbsent(country, inlineFlag);
+            if (existing != null) {
+                inlineFlag = existing;
+            }
+        }
+        return inlineFlag;
+    }
+
+    /**
+     * Returns the inline flag for the given country code or {@code null} if no
+     * matching flag was found.
+     *
+     * @param country The country code (usually an uppercase ISO 3166 2-letter
+     * code)
+     * @return The {@link InlineFlag} instance or {@code null}
+     * @see FamFamFlags#fromCountry(java.lang.String)
+     */
+    public static InlineFlag fromCountry(String country) {
+        FamFamFlags flag = FamFamFlags.fromCountry(country);
+        return flag != null ? of(flag) : null;
+    }
+
+    /**
+     * Gets the flag this inline flag was created from.
+     *
+     * @return The flag
+     */
+    public FamFamFlags getFlag() {
+        return flag;
+    }
+
+    /**
+     * Replaces this inline flag with its flag during serialization, so the
+     * data URI isn't serialized.
+     *
+     * @return The serialized form
+     */
+    private Object writeReplace() {
+        return new SerializedForm(flag);
+    }
+
+    /**
+     * Prevents direct deserialization, inline flags are always serialized
+     * through {@link SerializedForm}.
+     *
+     * @param in The stream
+     * @throws InvalidObjectException Always
+     */
+    private void readObject(ObjectInputStream in)
+            throws InvalidObjectException {
+        throw new InvalidObjectException("SerializedForm required");
+    }
+
+    /**
+     * The serialized form of an inline flag. Restores the cached instance on
+     * deserialization.
+     */
+    private static final class SerializedForm implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The flag
+         */
+        private final FamFamFlags flag;
+
+        SerializedForm(FamFamFlags flag) {
+            this.flag = flag;
+        }
+
+        private Object readResolve() {
+            return of(flag);
+        }
+
+    }
+
+    /**
+     * <b>THIS METHOD MUST NOT BE USED!</b>
+     *
+     * @param mimeType The new MIME type
+     * @deprecated
+     * @throws UnsupportedOperationException On every method call!
+     */
+    @Deprecated
+    @Override
+    public void setMIMEType(String mimeType) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException();
+    }
+
+}
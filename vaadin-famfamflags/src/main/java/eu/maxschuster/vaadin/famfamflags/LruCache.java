@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small thread-safe map that evicts the least recently used entry once it
+ * holds more than a fixed number of entries.
+ *
+ * <p>
+ * The values are computed by the callers outside of the lock and published with
+ * {@link #putIfAbsent(java.lang.Object, java.lang.Object)}, so a slow
+ * computation never blocks readers of other keys.
+ * </p>
+ *
+ * @author Max Schuster
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+final class LruCache<K, V> {
+
+    /**
+     * The entries in access order
+     */
+    private final LinkedHashMap<K, V> map;
+
+    /**
+     * Creates a new {@link LruCache} instance.
+     *
+     * @param maxSize The maximum number of entries
+     */
+    LruCache(final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException(
+                    "The maximum size must be at least 1");
+        }
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+
+        };
+    }
+
+    /**
+     * Gets the value of the given key and marks it as recently used.
+     *
+     * @param key The key
+     * @return The value or {@code null}
+     */
+    synchronized V get(K key) {
+        return map.get(key);
+    }
+
+    /**
+     * Stores the given value unless the key already has a value.
+     *
+     * @param key The key
+     * @param value The value
+     * @return The value that is stored for the key after this call
+     */
+    synchronized V putIfAbsent(K key, V value) {
+        V current = map.get(key);
+        if (current != null) {
+            return current;
+        }
+        map.put(key, value);
+        return value;
+    }
+
+    /**
+     * Removes the entry of the given key only if it still holds the given
+     * value.
+     *
+     * @param key The key
+     * @param value The expected value
+     * @return {@code true} if the entry was removed
+     */
+    synchronized boolean remove(K key, V value) {
+        V current = map.get(key);
+        if (current == null || !current.equals(value)) {
+            return false;
+        }
+        map.remove(key);
+        return true;
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return The number of entries
+     */
+    synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * Removes all entries.
+     */
+    synchronized void clear() {
+        map.clear();
+    }
+
+}
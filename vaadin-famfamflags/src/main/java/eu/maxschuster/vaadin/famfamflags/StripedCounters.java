@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An array of counters that can be incremented by many threads without
+ * contention.
+ *
+ * <p>
+ * Every thread increments the counters of its own stripe (chosen by the
+ * thread id), the value of a counter is the sum over all stripes. The sum is
+ * not an atomic snapshot while the counters are incremented.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+final class StripedCounters {
+
+    /**
+     * Upper bound of the number of stripes.
+     */
+    private static final int MAX_STRIPES = 16;
+
+    /**
+     * The counters of each stripe
+     */
+    private final AtomicLongArray[] stripes;
+
+    /**
+     * Maps thread ids to stripes
+     */
+    private final int mask;
+
+    /**
+     * Number of counters
+     */
+    private final int length;
+
+    /**
+     * Creates a new {@link StripedCounters} instance with one stripe per
+     * processor (rounded up to a power of two, at most {@link #MAX_STRIPES}).
+     *
+     * @param length The number of counters
+     */
+    StripedCounters(int length) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int count = 1;
+        while (count < processors && count < MAX_STRIPES) {
+            count <<= 1;
+        }
+        this.stripes = new AtomicLongArray[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new AtomicLongArray(length);
+        }
+        this.mask = count - 1;
+        this.length = length;
+    }
+
+    /**
+     * Increments the given counter.
+     *
+     * @param index The index of the counter
+     */
+    void increment(int index) {
+        int stripe = (int) Thread.currentThread().getId() & mask;
+        stripes[stripe].incrementAndGet(index);
+    }
+
+    /**
+     * Gets the value of the given counter.
+     *
+     * @param index The index of the counter
+     * @return The sum of the counter over all stripes
+     */
+    long get(int index) {
+        long sum = 0;
+        for (AtomicLongArray stripe : stripes) {
+            sum += stripe.get(index);
+        }
+        return sum;
+    }
+
+    /**
+     * Gets the number of counters.
+     *
+     * @return The number of counters
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Sets all counters to zero.
+     */
+    void reset() {
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < length; i++) {
+                stripe.set(i, 0);
+            }
+        }
+    }
+
+}
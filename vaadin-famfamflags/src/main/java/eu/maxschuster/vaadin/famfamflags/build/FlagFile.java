@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.build;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import javax.imageio.ImageIO;
+
+/**
+ * A single bundled flag icon file as seen by the build tools.
+ *
+ * @author Max Schuster
+ */
+final class FlagFile implements Comparable<FlagFile> {
+
+    /**
+     * Matches the original flag icons (<code>xx.png</code>) and ignores
+     * generated files like the sprite.
+     */
+    private static final Pattern FLAG_FILE_NAME
+            = Pattern.compile("^[a-z]+\\.png$");
+
+    /**
+     * The icon file
+     */
+    private final File file;
+
+    /**
+     * The lowercase flag name (file name without extension)
+     */
+    private final String name;
+
+    private FlagFile(File file) {
+        this.file = file;
+        String fileName = file.getName();
+        this.name = fileName.substring(0, fileName.length() - 4);
+    }
+
+    /**
+     * Lists all flag icons inside of the given directory ordered by name.
+     *
+     * @param directory The flag directory
+     * @return The flag icons
+     * @throws IOException If the directory can't be read
+     */
+    static List<FlagFile> list(File directory) throws IOException {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile()
+                        && FLAG_FILE_NAME.matcher(file.getName()).matches();
+            }
+        });
+        if (files == null) {
+            throw new IOException("Can't list flag directory " + directory);
+        }
+        List<FlagFile> flags = new ArrayList<FlagFile>(files.length);
+        for (File file : files) {
+            flags.add(new FlagFile(file));
+        }
+        Collections.sort(flags);
+        return flags;
+    }
+
+    /**
+     * Gets the icon file.
+     *
+     * @return The icon file
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the lowercase flag name (e.g. <code>fi</code> or
+     * <code>england</code>).
+     *
+     * @return The lowercase flag name
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Decodes the icon.
+     *
+     * @return The decoded icon
+     * @throws IOException If the icon can't be decoded
+     */
+    BufferedImage read() throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Can't decode " + file);
+        }
+        return image;
+    }
+
+    @Override
+    public int compareTo(FlagFile o) {
+        return name.compareTo(o.name);
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.build;
+
+import eu.maxschuster.vaadin.famfamflags.FlagVariant;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Build-time tool that creates a content-hashed copy of every flag icon
+ * and its {@link FlagVariant}s (e.g. <code>fi.2a8c32196f.png</code>) and a
+ * manifest that maps each country code to its hashed file name. The keys of
+ * the variants are the country code followed by the variant name (e.g.
+ * <code>FI-disabled</code>).
+ *
+ * <p>
+ * The hashed file names change whenever an icon changes, so they can be
+ * cached forever. This class is executed by the <code>exec-maven-plugin</code>
+ * during the <code>process-classes</code> phase and is not part of the add-on
+ * jar.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class ManifestGenerator {
+
+    /**
+     * Number of hex digits of the content hash inside of the file names.
+     */
+    private static final int HASH_LENGTH = 10;
+
+    /**
+     * Matches the hashed copies of previous builds.
+     */
+    private static final Pattern HASHED_FILE_NAME = Pattern.compile(
+            "^[a-z]+(-[a-z]+)?\\.[0-9a-f]{" + HASH_LENGTH + "}\\.png$");
+
+    private ManifestGenerator() {
+    }
+
+    /**
+     * Generates the hashed icons and the manifest.
+     *
+     * @param args The directory containing the flag icons and the manifest
+     * file to write.
+     * @throws IOException If reading the flags or writing the manifest fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException(
+                    "Usage: ManifestGenerator <flag directory> <manifest>");
+        }
+        File directory = new File(args[0]);
+        File manifest = new File(args[1]);
+        deleteHashedFiles(directory);
+
+        List<FlagFile> flags = FlagFile.list(directory);
+        StringBuilder properties = new StringBuilder();
+        properties.append("# Generated by ")
+                .append(ManifestGenerator.class.getSimpleName())
+                .append(". Do not edit.\n");
+        for (FlagFile flag : flags) {
+            String key = flag.getName().toUpperCase(Locale.US);
+            addFile(directory, flag.getFile(), key, properties);
+            for (FlagVariant.Type variant : FlagVariant.Type.values()) {
+                File file = new File(directory, VariantGenerator.getFileName(
+                        variant, flag.getName()));
+                if (file.isFile()) {
+                    addFile(directory, file, key + '-' + variant.getName(),
+                            properties);
+                }
+            }
+        }
+
+        manifest.getParentFile().mkdirs();
+        // Only ASCII is written, so the ISO 8859-1 of Properties is met
+        writeFile(manifest, properties.toString().getBytes("ISO-8859-1"));
+
+        System.out.println("Wrote " + flags.size()
+                + " content-hashed flags to " + manifest.getName());
+    }
+
+    /**
+     * Writes the hashed copy of the given icon and adds it to the manifest.
+     *
+     * @param directory The flag directory
+     * @param file The icon
+     * @param key The manifest key
+     * @param properties The manifest
+     * @throws IOException If reading or writing the icon fails
+     */
+    private static void addFile(File directory, File file, String key,
+            StringBuilder properties) throws IOException {
+        byte[] png = readFile(file);
+        String name = file.getName();
+        String hashedName = name.substring(0, name.length() - 4) + '.'
+                + hash(png) + ".png";
+        writeFile(new File(directory, hashedName), png);
+        properties.append(key).append('=').append(hashedName).append('\n');
+    }
+
+    private static void deleteHashedFiles(File directory) throws IOException {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return HASHED_FILE_NAME.matcher(file.getName()).matches();
+            }
+        });
+        if (files == null) {
+            throw new IOException("Can't list flag directory " + directory);
+        }
+        for (File file : files) {
+            if (!file.delete()) {
+                throw new IOException("Can't delete " + file);
+            }
+        }
+    }
+
+    /**
+     * Gets the first {@link #HASH_LENGTH} hex digits of the SHA-1 hash of the
+     * given bytes.
+     *
+     * @param bytes The bytes
+     * @return The shortened hash
+     */
+    static String hash(byte[] bytes) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit(b >> 4 & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.substring(0, HASH_LENGTH);
+    }
+
+    static byte[] readFile(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = in.read(bytes, offset, bytes.length - offset);
+                if (read == -1) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                offset += read;
+            }
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    static void writeFile(File file, byte[] bytes) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+}
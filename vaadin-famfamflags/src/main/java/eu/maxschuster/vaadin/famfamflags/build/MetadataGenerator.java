@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.build;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Build-time tool that writes the metadata of every flag icon into a
+ * properties file, so the add-on never has to decode an icon to know its size
+ * or colors.
+ *
+ * <p>
+ * Every line maps a country code to
+ * <code>width,height,bytes,hash,dominant color,average color</code> (e.g.
+ * <code>FI=16,11,489,2a8c32196f,f7f8f8,a7b9e2</code>). The hash is the one of
+ * the content-hashed file names and the colors are hex RGB values. This class
+ * is executed by the <code>exec-maven-plugin</code> during the
+ * <code>process-classes</code> phase after the {@link PngOptimizer} and is not
+ * part of the add-on jar.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class MetadataGenerator {
+
+    /**
+     * Pixels with a lower alpha value don't count for the dominant color.
+     */
+    private static final int MIN_ALPHA = 128;
+
+    /**
+     * Number of bits per channel used to group similar colors when searching
+     * the dominant color.
+     */
+    private static final int BUCKET_BITS = 4;
+
+    private MetadataGenerator() {
+    }
+
+    /**
+     * Generates the metadata file.
+     *
+     * @param args The directory containing the flag icons and the metadata
+     * file to write.
+     * @throws IOException If reading the flags or writing the metadata fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException(
+                    "Usage: MetadataGenerator <flag directory> <metadata>");
+        }
+        List<FlagFile> flags = FlagFile.list(new File(args[0]));
+        File metadata = new File(args[1]);
+
+        StringBuilder properties = new StringBuilder();
+        properties.append("# Generated by ")
+                .append(MetadataGenerator.class.getSimpleName())
+                .append(". Do not edit.\n")
+                .append("# width,height,bytes,hash,dominant color,"
+                        + "average color\n");
+        for (FlagFile flag : flags) {
+            byte[] png = ManifestGenerator.readFile(flag.getFile());
+            BufferedImage image = flag.read();
+            int width = image.getWidth();
+            int height = image.getHeight();
+            int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+            properties.append(flag.getName().toUpperCase(Locale.US))
+                    .append('=').append(width)
+                    .append(',').append(height)
+                    .append(',').append(png.length)
+                    .append(',').append(ManifestGenerator.hash(png))
+                    .append(',').append(hex(dominantColor(pixels)))
+                    .append(',').append(hex(averageColor(pixels)))
+                    .append('\n');
+        }
+
+        metadata.getParentFile().mkdirs();
+        // Only ASCII is written, so the ISO 8859-1 of Properties is met
+        ManifestGenerator.writeFile(metadata,
+                properties.toString().getBytes("ISO-8859-1"));
+
+        System.out.println("Wrote the metadata of " + flags.size()
+                + " flags to " + metadata.getName());
+    }
+
+    /**
+     * Gets the dominant color: Similar colors are grouped and the average of
+     * the largest group is returned.
+     *
+     * @param pixels The ARGB pixels
+     * @return The RGB color
+     */
+    static int dominantColor(int[] pixels) {
+        int shift = 8 - BUCKET_BITS;
+        int buckets = 1 << 3 * BUCKET_BITS;
+        int[] counts = new int[buckets];
+        long[] sums = new long[buckets * 3];
+        int largest = -1;
+        for (int pixel : pixels) {
+            if (pixel >>> 24 < MIN_ALPHA) {
+                continue;
+            }
+            int r = pixel >> 16 & 0xFF;
+            int g = pixel >> 8 & 0xFF;
+            int b = pixel & 0xFF;
+            int bucket = (r >> shift) << 2 * BUCKET_BITS
+                    | (g >> shift) << BUCKET_BITS | b >> shift;
+            counts[bucket]++;
+            sums[bucket * 3] += r;
+            sums[bucket * 3 + 1] += g;
+            sums[bucket * 3 + 2] += b;
+            if (largest == -1 || counts[bucket] > counts[largest]) {
+                largest = bucket;
+            }
+        }
+        if (largest == -1) {
+            return averageColor(pixels);
+        }
+        int count = counts[largest];
+        return rgb(sums[largest * 3], sums[largest * 3 + 1],
+                sums[largest * 3 + 2], count);
+    }
+
+    /**
+     * Gets the average color weighted by the alpha of the pixels.
+     *
+     * @param pixels The ARGB pixels
+     * @return The RGB color
+     */
+    static int averageColor(int[] pixels) {
+        long r = 0;
+        long g = 0;
+        long b = 0;
+        long weight = 0;
+        for (int pixel : pixels) {
+            int alpha = pixel >>> 24;
+            r += (pixel >> 16 & 0xFF) * alpha;
+            g += (pixel >> 8 & 0xFF) * alpha;
+            b += (pixel & 0xFF) * alpha;
+            weight += alpha;
+        }
+        return weight == 0 ? 0 : rgb(r, g, b, weight);
+    }
+
+    private static int rgb(long r, long g, long b, long weight) {
+        return (int) ((r + weight / 2) / weight) << 16
+                | (int) ((g + weight / 2) / weight) << 8
+                | (int) ((b + weight / 2) / weight);
+    }
+
+    private static String hex(int rgb) {
+        String hex = Integer.toHexString(rgb);
+        return "000000".substring(hex.length()) + hex;
+    }
+
+}
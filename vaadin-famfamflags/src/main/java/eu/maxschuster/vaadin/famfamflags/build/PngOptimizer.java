@@ -0,0 +1,219 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.build;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Build-time tool that re-encodes every flag icon losslessly and keeps the
+ * smaller file.
+ *
+ * <p>
+ * Each icon is encoded as a palette image (with the smallest possible bit
+ * depth) if it has at most 256 colors and as true color image (without alpha
+ * if it is opaque) otherwise. The PNG writer selects the filter of every row
+ * and no ancillary chunks are written. A candidate is only used if it decodes
+ * to exactly the same pixels as the original icon.
+ * </p>
+ *
+ * <p>
+ * This class is executed by the <code>exec-maven-plugin</code> during the
+ * <code>process-classes</code> phase before the other build tools and is not
+ * part of the add-on jar.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class PngOptimizer {
+
+    private PngOptimizer() {
+    }
+
+    /**
+     * Optimizes the flag icons in place.
+     *
+     * @param args The directory containing the flag icons.
+     * @throws IOException If reading or writing the flags fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException(
+                    "Usage: PngOptimizer <flag directory>");
+        }
+        List<FlagFile> flags = FlagFile.list(new File(args[0]));
+        long before = 0;
+        long after = 0;
+        int optimized = 0;
+        for (FlagFile flag : flags) {
+            byte[] original = ManifestGenerator.readFile(flag.getFile());
+            byte[] best = optimize(original);
+            before += original.length;
+            after += best.length;
+            if (best != original) {
+                ManifestGenerator.writeFile(flag.getFile(), best);
+                optimized++;
+            }
+        }
+        System.out.println("Optimized " + optimized + " of " + flags.size()
+                + " flags: " + before + " -> " + after + " bytes (saved "
+                + (before - after) + " bytes)");
+    }
+
+    /**
+     * Gets the smallest lossless encoding of the given PNG.
+     *
+     * @param original The original PNG
+     * @return The smallest encoding, the original array if it can't be
+     * improved
+     * @throws IOException If the PNG can't be decoded
+     */
+    static byte[] optimize(byte[] original) throws IOException {
+        BufferedImage image = decode(original);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        byte[] best = original;
+        for (BufferedImage candidate : candidates(pixels, width, height)) {
+            byte[] encoded = encode(candidate);
+            if (encoded.length < best.length
+                    && isIdentical(pixels, decode(encoded))) {
+                best = encoded;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Creates the images that are worth encoding for the given pixels.
+     */
+    private static List<BufferedImage> candidates(int[] pixels, int width,
+            int height) {
+        List<BufferedImage> candidates = new ArrayList<BufferedImage>(3);
+        boolean opaque = true;
+        Set<Integer> colors = new LinkedHashSet<Integer>();
+        for (int pixel : pixels) {
+            opaque &= pixel >>> 24 == 0xFF;
+            if (colors.size() <= 256) {
+                colors.add(pixel);
+            }
+        }
+
+        if (colors.size() <= 256) {
+            int[] palette = new int[colors.size()];
+            int i = 0;
+            for (Integer color : colors) {
+                palette[i++] = color;
+            }
+            for (int bits : new int[]{bitDepth(palette.length), 8}) {
+                candidates.add(indexed(pixels, width, height, palette, bits,
+                        opaque));
+                if (bits == 8) {
+                    break;
+                }
+            }
+        }
+
+        BufferedImage trueColor = new BufferedImage(width, height, opaque
+                ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        trueColor.setRGB(0, 0, width, height, pixels, 0, width);
+        candidates.add(trueColor);
+        return candidates;
+    }
+
+    private static int bitDepth(int colors) {
+        if (colors <= 2) {
+            return 1;
+        } else if (colors <= 4) {
+            return 2;
+        } else if (colors <= 16) {
+            return 4;
+        }
+        return 8;
+    }
+
+    private static BufferedImage indexed(int[] pixels, int width, int height,
+            int[] palette, int bits, boolean opaque) {
+        int size = 1 << bits;
+        int[] colorMap = Arrays.copyOf(palette, size);
+        IndexColorModel model = opaque
+                ? new IndexColorModel(bits, size, colorMap, 0, false, -1, 0)
+                : new IndexColorModel(bits, size, colorMap, 0, true, -1, 0);
+        BufferedImage image = bits == 8
+                ? new BufferedImage(width, height,
+                        BufferedImage.TYPE_BYTE_INDEXED, model)
+                : new BufferedImage(width, height,
+                        BufferedImage.TYPE_BYTE_BINARY, model);
+        // setRGB() maps every pixel to its exact palette entry
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+        return image;
+    }
+
+    private static boolean isIdentical(int[] pixels, BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        return width * height == pixels.length && Arrays.equals(pixels,
+                image.getRGB(0, 0, width, height, null, 0, width));
+    }
+
+    private static BufferedImage decode(byte[] png) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        if (image == null) {
+            throw new IOException("Can't decode PNG");
+        }
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(
+                "png");
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageOutputStream out = ImageIO.createImageOutputStream(bytes);
+        try {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                // Quality 0 means best (slowest) compression
+                param.setCompressionQuality(0f);
+            }
+            writer.setOutput(out);
+            // No metadata, so only the critical chunks are written
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+}
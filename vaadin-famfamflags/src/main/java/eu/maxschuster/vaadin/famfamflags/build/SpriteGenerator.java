@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.build;
+
+import eu.maxschuster.vaadin.famfamflags.FlagVariant;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Build-time tool that packs all flag icons into a single sprite image and
+ * writes a stylesheet with the offset of every flag inside of it.
+ *
+ * <p>
+ * Besides the <code>famfamflags famfamflags-xx</code> style names the
+ * stylesheet also styles Vaadin 7 Table cells with the cell style
+ * <code>famfamflags-xx</code> (see <code>FlagTableColumn</code>).
+ * </p>
+ *
+ * <p>
+ * A sprite is written for every {@link FlagVariant} as well (e.g.
+ * <code>famfamflags-sprite-disabled.png</code>). The style name
+ * <code>famfamflags-disabled</code> switches a flag to it, flags inside of
+ * disabled components use the disabled sprite automatically.
+ * </p>
+ *
+ * <p>
+ * All sprites are encoded as small as possible by the {@link PngOptimizer}.
+ * This class is executed by the <code>exec-maven-plugin</code> during the
+ * <code>process-classes</code> phase and is not part of the add-on jar.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class SpriteGenerator {
+
+    /**
+     * File name of the generated sprite image.
+     */
+    public static final String SPRITE_IMAGE = "famfamflags-sprite.png";
+
+    /**
+     * File name of the generated sprite stylesheet.
+     */
+    public static final String SPRITE_STYLESHEET = "famfamflags-sprite.css";
+
+    /**
+     * File name of the sprite of a {@link FlagVariant}. The <code>%s</code> is
+     * replaced by the variant name.
+     */
+    private static final String VARIANT_SPRITE_IMAGE
+            = "famfamflags-sprite-%s.png";
+
+    /**
+     * The base style name every flag gets.
+     */
+    public static final String STYLE_NAME = "famfamflags";
+
+    /**
+     * Selector of the element showing the flag in a Vaadin 7 Table cell with
+     * the cell style <code>famfamflags-xx</code>. The <code>%s</code> is
+     * replaced by the flag name.
+     */
+    private static final String TABLE_CELL_SELECTOR
+            = ".v-table-cell-content-" + STYLE_NAME
+            + "-%s > .v-table-cell-wrapper:before";
+
+    /**
+     * Matches the elements showing a flag in any Vaadin 7 Table cell.
+     */
+    private static final String ANY_TABLE_CELL_SELECTOR
+            = "[class*=\"v-table-cell-content-" + STYLE_NAME
+            + "-\"] > .v-table-cell-wrapper:before";
+
+    /**
+     * Number of flags in each row of the sprite.
+     */
+    private static final int COLUMNS = 16;
+
+    /**
+     * Width of a single sprite cell. Fits the largest flag.
+     */
+    private static final int CELL_WIDTH = 16;
+
+    /**
+     * Height of a single sprite cell. Fits the largest flag.
+     */
+    private static final int CELL_HEIGHT = 12;
+
+    /**
+     * Default width of a flag. Flags with other sizes get their own rule.
+     */
+    private static final int DEFAULT_WIDTH = 16;
+
+    /**
+     * Default height of a flag. Flags with other sizes get their own rule.
+     */
+    private static final int DEFAULT_HEIGHT = 11;
+
+    private SpriteGenerator() {
+    }
+
+    /**
+     * Generates the sprite image and stylesheet.
+     *
+     * @param args The directory containing the flag icons. The sprite files
+     * are written into the same directory.
+     * @throws IOException If reading the flags or writing the sprite fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException(
+                    "Usage: SpriteGenerator <flag directory>");
+        }
+        File directory = new File(args[0]);
+        List<FlagFile> flags = FlagFile.list(directory);
+        int rows = (flags.size() + COLUMNS - 1) / COLUMNS;
+
+        BufferedImage sprite = new BufferedImage(COLUMNS * CELL_WIDTH,
+                rows * CELL_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        StringBuilder css = new StringBuilder();
+        css.append("/* Generated by ")
+                .append(SpriteGenerator.class.getSimpleName())
+                .append(". Do not edit. */\n")
+                .append('.').append(STYLE_NAME).append(",\n")
+                .append(ANY_TABLE_CELL_SELECTOR).append(" {\n")
+                .append("    display: inline-block;\n")
+                .append("    width: ").append(DEFAULT_WIDTH).append("px;\n")
+                .append("    height: ").append(DEFAULT_HEIGHT).append("px;\n")
+                .append("    background-image: url(").append(SPRITE_IMAGE)
+                .append(");\n")
+                .append("    background-repeat: no-repeat;\n")
+                .append("    vertical-align: middle;\n")
+                .append("}\n")
+                .append(ANY_TABLE_CELL_SELECTOR).append(" {\n")
+                .append("    content: \"\";\n")
+                .append("}\n");
+        for (FlagVariant.Type variant : FlagVariant.Type.values()) {
+            css.append('.').append(STYLE_NAME).append('.').append(STYLE_NAME)
+                    .append('-').append(variant.getName());
+            if (variant == FlagVariant.Type.DISABLED) {
+                css.append(",\n.v-disabled .").append(STYLE_NAME);
+            }
+            css.append(" {\n")
+                    .append("    background-image: url(")
+                    .append(String.format(VARIANT_SPRITE_IMAGE,
+                            variant.getName())).append(");\n")
+                    .append("}\n");
+        }
+
+        Graphics2D g = sprite.createGraphics();
+        try {
+            for (int i = 0; i < flags.size(); i++) {
+                FlagFile flag = flags.get(i);
+                BufferedImage image = flag.read();
+                int x = (i % COLUMNS) * CELL_WIDTH;
+                int y = (i / COLUMNS) * CELL_HEIGHT;
+                g.drawImage(image, x, y, null);
+
+                css.append('.').append(STYLE_NAME).append('-')
+                        .append(flag.getName()).append(",\n")
+                        .append(String.format(TABLE_CELL_SELECTOR,
+                                flag.getName())).append(" {\n")
+                        .append("    background-position: ")
+                        .append(-x).append("px ").append(-y).append("px;\n");
+                if (image.getWidth() != DEFAULT_WIDTH) {
+                    css.append("    width: ").append(image.getWidth())
+                            .append("px;\n");
+                }
+                if (image.getHeight() != DEFAULT_HEIGHT) {
+                    css.append("    height: ").append(image.getHeight())
+                            .append("px;\n");
+                }
+                css.append("}\n");
+            }
+        } finally {
+            g.dispose();
+        }
+
+        long bytes = write(new File(directory, SPRITE_IMAGE), sprite);
+        for (FlagVariant.Type variant : FlagVariant.Type.values()) {
+            File file = new File(directory,
+                    String.format(VARIANT_SPRITE_IMAGE, variant.getName()));
+            bytes += write(file, VariantGenerator.apply(variant, sprite));
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(
+                new File(directory, SPRITE_STYLESHEET)), "UTF-8");
+        try {
+            writer.write(css.toString());
+        } finally {
+            writer.close();
+        }
+
+        System.out.println("Packed " + flags.size() + " flags into "
+                + SPRITE_IMAGE + " and its variants (" + bytes + " bytes)");
+    }
+
+    /**
+     * Writes the given sprite as small as possible through the
+     * {@link PngOptimizer}.
+     *
+     * @param file The file to write
+     * @param sprite The sprite
+     * @return The size of the written file in bytes
+     * @throws IOException If encoding or writing the sprite fails
+     */
+    private static long write(File file, BufferedImage sprite)
+            throws IOException {
+        byte[] png = PngOptimizer.optimize(VariantGenerator.encode(sprite));
+        ManifestGenerator.writeFile(file, png);
+        return png.length;
+    }
+
+}
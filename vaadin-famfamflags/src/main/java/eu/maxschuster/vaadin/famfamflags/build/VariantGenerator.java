@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.build;
+
+import eu.maxschuster.vaadin.famfamflags.FlagVariant;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+/**
+ * Build-time tool that writes the {@link FlagVariant}s of every flag icon (e.g.
+ * <code>fi-disabled.png</code> and <code>fi-translucent.png</code>), so
+ * clients don't have to apply CSS filters to the icons.
+ *
+ * <p>
+ * The variants are encoded as small as possible by the {@link PngOptimizer}.
+ * This class is executed by the <code>exec-maven-plugin</code> during the
+ * <code>process-classes</code> phase after the {@link PngOptimizer} and is not
+ * part of the add-on jar.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public final class VariantGenerator {
+
+    private VariantGenerator() {
+    }
+
+    /**
+     * Generates the flag variants.
+     *
+     * @param args The directory containing the flag icons. The variants are
+     * written into the same directory.
+     * @throws IOException If reading the flags or writing the variants fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException(
+                    "Usage: VariantGenerator <flag directory>");
+        }
+        File directory = new File(args[0]);
+        List<FlagFile> flags = FlagFile.list(directory);
+        long bytes = 0;
+        for (FlagFile flag : flags) {
+            BufferedImage image = flag.read();
+            for (FlagVariant.Type variant : FlagVariant.Type.values()) {
+                byte[] png = PngOptimizer.optimize(
+                        encode(apply(variant, image)));
+                ManifestGenerator.writeFile(new File(directory,
+                        getFileName(variant, flag.getName())), png);
+                bytes += png.length;
+            }
+        }
+        System.out.println("Wrote " + FlagVariant.Type.values().length
+                + " variants of "
+                + flags.size() + " flags (" + bytes + " bytes)");
+    }
+
+    /**
+     * Gets the file name of the given variant of a flag. The name of the
+     * variant is appended to the flag name.
+     *
+     * @param variant The variant
+     * @param flagName The lowercase flag name (e.g. <code>fi</code>)
+     * @return The file name (e.g. <code>fi-disabled.png</code>)
+     */
+    static String getFileName(FlagVariant.Type variant, String flagName) {
+        return flagName + '-' + variant.getName() + ".png";
+    }
+
+    /**
+     * Converts all pixels of the given image into the given variant.
+     *
+     * @param variant The variant
+     * @param image The original image
+     * @return A new converted image
+     */
+    static BufferedImage apply(FlagVariant.Type variant, BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = variant.apply(pixels[i]);
+        }
+        BufferedImage result = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_ARGB);
+        result.setRGB(0, 0, width, height, pixels, 0, width);
+        return result;
+    }
+
+    /**
+     * Encodes an image as PNG.
+     *
+     * @param image The image
+     * @return The PNG
+     * @throws IOException If the image can't be encoded
+     */
+    static byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests {@link FamFamFlags#fromAcceptLanguage(java.lang.String)}.
+ *
+ * @author Max Schuster
+ */
+public class AcceptLanguageTest {
+
+    @Test
+    public void regionsMatchTheirFlag() {
+        assertSame(FamFamFlags.SWITZERLAND,
+                FamFamFlags.fromAcceptLanguage("de-CH"));
+        assertSame(FamFamFlags.AUSTRIA,
+                FamFamFlags.fromAcceptLanguage("de-at"));
+        assertSame(FamFamFlags.UNITED_KINGDOM,
+                FamFamFlags.fromAcceptLanguage("en_GB"));
+    }
+
+    @Test
+    public void languagesFallBackToTheirLikelyCountry() {
+        assertSame(FamFamFlags.GERMANY, FamFamFlags.fromAcceptLanguage("de"));
+        assertSame(FamFamFlags.UNITED_STATES,
+                FamFamFlags.fromAcceptLanguage("en"));
+        assertSame(FamFamFlags.JAPAN, FamFamFlags.fromAcceptLanguage("ja"));
+    }
+
+    @Test
+    public void scriptsSelectTheirLikelyCountry() {
+        assertSame(FamFamFlags.TAIWAN_PROVINCE_OF_CHINA,
+                FamFamFlags.fromAcceptLanguage("zh-Hant"));
+        assertSame(FamFamFlags.CHINA,
+                FamFamFlags.fromAcceptLanguage("zh-Hans"));
+        assertSame(FamFamFlags.HONG_KONG,
+                FamFamFlags.fromAcceptLanguage("zh-Hant-HK"));
+    }
+
+    @Test
+    public void rangesAreTriedByQuality() {
+        assertSame(FamFamFlags.FINLAND,
+                FamFamFlags.fromAcceptLanguage("en;q=0.5, fi;q=0.9"));
+        assertSame(FamFamFlags.SWITZERLAND, FamFamFlags.fromAcceptLanguage(
+                "de-CH, de;q=0.9, en;q=0.8"));
+        // Equal qualities keep their order
+        assertSame(FamFamFlags.FRANCE,
+                FamFamFlags.fromAcceptLanguage("fr;q=0.7, it;q=0.7"));
+    }
+
+    @Test
+    public void unknownParametersAreIgnored() {
+        assertSame(FamFamFlags.GERMANY, FamFamFlags.fromAcceptLanguage(
+                "de;q=0.8;foo=bar, en;q=0.5"));
+        assertSame(FamFamFlags.GERMANY, FamFamFlags.fromAcceptLanguage(
+                "en;foo=bar;q=0.5, de;Q=0.8"));
+        assertSame(FamFamFlags.FRANCE,
+                FamFamFlags.fromAcceptLanguage("fr;foo=bar, de;q=0.9"));
+        assertSame(FamFamFlags.ITALY, FamFamFlags.fromAcceptLanguage(
+                "de;foo=bar;q=0, it;q=0.1"));
+    }
+
+    @Test
+    public void unmatchedRangesAreSkipped() {
+        assertSame(FamFamFlags.ITALY, FamFamFlags.fromAcceptLanguage(
+                "de;q=0, it"));
+        assertSame(FamFamFlags.ITALY, FamFamFlags.fromAcceptLanguage(
+                "*, it;q=0.1"));
+        assertSame(FamFamFlags.ITALY, FamFamFlags.fromAcceptLanguage(
+                "xx, de;q=2, it;q=0.5"));
+    }
+
+    @Test
+    public void unknownHeadersReturnNull() {
+        assertNull(FamFamFlags.fromAcceptLanguage(null));
+        assertNull(FamFamFlags.fromAcceptLanguage(""));
+        assertNull(FamFamFlags.fromAcceptLanguage("*"));
+        assertNull(FamFamFlags.fromAcceptLanguage("de;q=0"));
+        assertNull(FamFamFlags.fromAcceptLanguage(";;,,"));
+    }
+
+    @Test
+    public void resultsSurviveAFullCache() {
+        for (int i = 0; i < 1000; i++) {
+            assertSame(FamFamFlags.FINLAND, FamFamFlags.fromAcceptLanguage(
+                    "fi, en;q=0." + i));
+            assertSame(FamFamFlags.SWEDEN, FamFamFlags.fromAcceptLanguage(
+                    "sv-SE, fi;q=0.9"));
+        }
+    }
+
+    @Test
+    public void cachedResultsStayTheSame() {
+        String header = "fi-FI, fi;q=0.9, en-US;q=0.8";
+        assertSame(FamFamFlags.FINLAND, FamFamFlags.fromAcceptLanguage(header));
+        assertSame(FamFamFlags.FINLAND, FamFamFlags.fromAcceptLanguage(
+                new String(header)));
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests {@link FamFamFlags#fromPhoneNumber(java.lang.CharSequence)}.
+ *
+ * @author Max Schuster
+ */
+public class CallingCodesTest {
+
+    @Test
+    public void singleCountryCodes() {
+        assertSame(FamFamFlags.GERMANY,
+                FamFamFlags.fromPhoneNumber("+49 30 1234567"));
+        assertSame(FamFamFlags.FINLAND,
+                FamFamFlags.fromPhoneNumber("+358 40 1234567"));
+        assertSame(FamFamFlags.JAPAN,
+                FamFamFlags.fromPhoneNumber("+81 3-1234-5678"));
+    }
+
+    @Test
+    public void sharedCodesUseTheLongestPrefix() {
+        assertSame(FamFamFlags.CANADA,
+                FamFamFlags.fromPhoneNumber("+1 (604) 555-0100"));
+        assertSame(FamFamFlags.UNITED_STATES,
+                FamFamFlags.fromPhoneNumber("+1 212 555 0100"));
+        assertSame(FamFamFlags.KAZAKHSTAN,
+                FamFamFlags.fromPhoneNumber("+7 701 1234567"));
+        assertSame(FamFamFlags.RUSSIAN_FEDERATION,
+                FamFamFlags.fromPhoneNumber("+7 495 1234567"));
+        assertSame(FamFamFlags.HOLY_SEE_VATICAN_CITY_STATE,
+                FamFamFlags.fromPhoneNumber("+39 06698 12345"));
+        assertSame(FamFamFlags.ITALY,
+                FamFamFlags.fromPhoneNumber("+39 06 1234567"));
+    }
+
+    @Test
+    public void prefixesWithoutFlagFallBack() {
+        // Jersey has no flag, the number falls back to +44
+        assertSame(FamFamFlags.UNITED_KINGDOM,
+                FamFamFlags.fromPhoneNumber("+44 1534 123456"));
+    }
+
+    @Test
+    public void internationalPrefixes() {
+        assertSame(FamFamFlags.GERMANY,
+                FamFamFlags.fromPhoneNumber("0049 30 1234567"));
+        assertSame(FamFamFlags.FINLAND,
+                FamFamFlags.fromPhoneNumber("358401234567"));
+        assertSame(FamFamFlags.SWITZERLAND,
+                FamFamFlags.fromPhoneNumber("+41.44.123.45.67"));
+    }
+
+    @Test
+    public void unknownNumbersReturnNull() {
+        assertNull(FamFamFlags.fromPhoneNumber(null));
+        assertNull(FamFamFlags.fromPhoneNumber(""));
+        assertNull(FamFamFlags.fromPhoneNumber("+"));
+        // National numbers have no calling code
+        assertNull(FamFamFlags.fromPhoneNumber("030 1234567"));
+        assertNull(FamFamFlags.fromPhoneNumber("+0 123"));
+        assertNull(FamFamFlags.fromPhoneNumber("phone"));
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.nio.CharBuffer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the lookups of {@link FamFamFlags}.
+ *
+ * @author Max Schuster
+ */
+public class FamFamFlagsTest {
+
+    @Test
+    public void fromCountryFindsTwoLetterCodes() {
+        assertSame(FamFamFlags.FINLAND, FamFamFlags.fromCountry("FI"));
+        assertSame(FamFamFlags.GERMANY, FamFamFlags.fromCountry("DE"));
+        assertSame(FamFamFlags.ZIMBABWE, FamFamFlags.fromCountry("ZW"));
+    }
+
+    @Test
+    public void fromCountryFindsLongCodes() {
+        assertSame(FamFamFlags.FAM, FamFamFlags.fromCountry("FAM"));
+        assertSame(FamFamFlags.EUROPEANUNION,
+                FamFamFlags.fromCountry("EUROPEANUNION"));
+        assertSame(FamFamFlags.ENGLAND, FamFamFlags.fromCountry("ENGLAND"));
+    }
+
+    @Test
+    public void fromCountryIsCaseSensitive() {
+        assertNull(FamFamFlags.fromCountry("fi"));
+        assertNull(FamFamFlags.fromCountry("Fi"));
+        assertNull(FamFamFlags.fromCountry("fam"));
+    }
+
+    @Test
+    public void fromCountryReturnsNullForUnknownCodes() {
+        assertNull(FamFamFlags.fromCountry((String) null));
+        assertNull(FamFamFlags.fromCountry(""));
+        assertNull(FamFamFlags.fromCountry("F"));
+        assertNull(FamFamFlags.fromCountry("AQ"));
+        assertNull(FamFamFlags.fromCountry("FIN"));
+        assertNull(FamFamFlags.fromCountry("F1"));
+        assertNull(FamFamFlags.fromCountry("[A"));
+    }
+
+    @Test
+    public void fromCountryBehavesLikeAMap() {
+        Map<String, FamFamFlags> map = new HashMap<String, FamFamFlags>();
+        for (FamFamFlags flag : FamFamFlags.getFlags()) {
+            assertNull(map.put(flag.getCountry(), flag));
+        }
+        for (char a = '@'; a <= 'z'; a++) {
+            for (char b = '@'; b <= 'z'; b++) {
+                String code = new String(new char[]{a, b});
+                assertSame(code, map.get(code), FamFamFlags.fromCountry(code));
+            }
+        }
+        for (String code : map.keySet()) {
+            assertSame(map.get(code), FamFamFlags.fromCountry(code));
+        }
+    }
+
+    @Test
+    public void fromLocaleUsesTheCountry() {
+        assertSame(FamFamFlags.FINLAND,
+                FamFamFlags.fromLocale(new Locale("fi", "FI")));
+        assertSame(FamFamFlags.SWITZERLAND,
+                FamFamFlags.fromLocale(new Locale("de", "CH")));
+        assertNull(FamFamFlags.fromLocale(Locale.ENGLISH));
+    }
+
+    @Test
+    public void fromCountryIgnoreCaseCharSequence() {
+        assertSame(FamFamFlags.FINLAND,
+                FamFamFlags.fromCountryIgnoreCase("fi"));
+        assertSame(FamFamFlags.FINLAND,
+                FamFamFlags.fromCountryIgnoreCase(new StringBuilder("Fi")));
+        assertSame(FamFamFlags.FINLAND, FamFamFlags.fromCountryIgnoreCase(
+                CharBuffer.wrap("xxFIxx", 2, 4)));
+        assertSame(FamFamFlags.EUROPEANUNION, FamFamFlags.fromCountryIgnoreCase(
+                new StringBuilder("EuropeanUnion")));
+        assertSame(FamFamFlags.FAM, FamFamFlags.fromCountryIgnoreCase("fam"));
+        assertNull(FamFamFlags.fromCountryIgnoreCase((CharSequence) null));
+        assertNull(FamFamFlags.fromCountryIgnoreCase("fin"));
+        assertNull(FamFamFlags.fromCountryIgnoreCase("f1"));
+    }
+
+    @Test
+    public void fromCountryIgnoreCaseChars() {
+        assertSame(FamFamFlags.FINLAND,
+                FamFamFlags.fromCountryIgnoreCase('F', 'I'));
+        assertSame(FamFamFlags.FINLAND,
+                FamFamFlags.fromCountryIgnoreCase('f', 'i'));
+        assertSame(FamFamFlags.FINLAND,
+                FamFamFlags.fromCountryIgnoreCase('f', 'I'));
+        assertNull(FamFamFlags.fromCountryIgnoreCase('A', 'Q'));
+        assertNull(FamFamFlags.fromCountryIgnoreCase('F', '1'));
+        assertNull(FamFamFlags.fromCountryIgnoreCase('\u00e4', 'a'));
+    }
+
+    @Test
+    public void fromCountryIgnoreCaseBytesReadsAtTheOffset() throws Exception {
+        byte[] buf = "cc=fi;DE".getBytes("US-ASCII");
+        assertSame(FamFamFlags.FINLAND,
+                FamFamFlags.fromCountryIgnoreCase(buf, 3));
+        assertSame(FamFamFlags.GERMANY,
+                FamFamFlags.fromCountryIgnoreCase(buf, 6));
+        assertNull(FamFamFlags.fromCountryIgnoreCase(buf, 2));
+        assertNull(FamFamFlags.fromCountryIgnoreCase(
+                new byte[]{(byte) 0xC6, 'I'}, 0));
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void fromCountryIgnoreCaseBytesNeedsTwoBytes() {
+        FamFamFlags.fromCountryIgnoreCase(new byte[]{'F', 'I'}, 1);
+    }
+
+    @Test
+    public void ignoreCaseVariantsAgreeWithFromCountry() {
+        for (char a = 'A'; a <= 'Z'; a++) {
+            for (char b = 'A'; b <= 'Z'; b++) {
+                String code = new String(new char[]{a, b});
+                String lowerCase = code.toLowerCase(Locale.US);
+                FamFamFlags expected = FamFamFlags.fromCountry(code);
+                assertSame(code, expected,
+                        FamFamFlags.fromCountryIgnoreCase(code));
+                assertSame(code, expected,
+                        FamFamFlags.fromCountryIgnoreCase(lowerCase));
+                assertSame(code, expected,
+                        FamFamFlags.fromCountryIgnoreCase(a, b));
+                assertSame(code, expected, FamFamFlags.fromCountryIgnoreCase(
+                        new byte[]{(byte) a, (byte) b}, 0));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the sharing and the names of the {@link FlagCatalog}.
+ *
+ * @author Max Schuster
+ */
+public class FlagCatalogTest {
+
+    @Test
+    public void regionsShareTheCatalogOfTheirLanguage() {
+        FlagCatalog german = FlagCatalog.of(Locale.GERMAN);
+        assertEquals(Locale.GERMAN, german.getLocale());
+        assertSame(german, FlagCatalog.of(Locale.GERMANY));
+        assertSame(german, FlagCatalog.of(new Locale("de", "AT")));
+        assertSame(german, FlagCatalog.of(new Locale("de", "CH", "POSIX")));
+        assertNotSame(german, FlagCatalog.of(Locale.ENGLISH));
+    }
+
+    @Test
+    public void chineseScriptsHaveTheirOwnCatalogs() {
+        assertSame(FlagCatalog.of(Locale.TRADITIONAL_CHINESE),
+                FlagCatalog.of(new Locale("zh", "HK")));
+        assertSame(FlagCatalog.of(Locale.SIMPLIFIED_CHINESE),
+                FlagCatalog.of(Locale.CHINESE));
+        assertNotSame(FlagCatalog.of(Locale.TRADITIONAL_CHINESE),
+                FlagCatalog.of(Locale.SIMPLIFIED_CHINESE));
+    }
+
+    @Test
+    public void flagsWithoutIsoCodeHaveNames() {
+        FlagCatalog english = FlagCatalog.of(Locale.ENGLISH);
+        assertEquals("European Union",
+                english.getName(FamFamFlags.EUROPEANUNION));
+        assertEquals("England", english.getName(FamFamFlags.ENGLAND));
+        assertEquals("Europ\u00e4ische Union", FlagCatalog.of(Locale.GERMANY)
+                .getName(FamFamFlags.EUROPEANUNION));
+        assertEquals("Schottland", FlagCatalog.of(Locale.GERMAN)
+                .getName(FamFamFlags.SCOTLAND));
+        // Languages without a translation fall back to English
+        assertEquals("Wales", FlagCatalog.of(new Locale("fi"))
+                .getName(FamFamFlags.WALES));
+        for (FlagCatalog.Entry entry : english.getEntries()) {
+            assertFalse(entry.getCode(),
+                    entry.getName().equals(entry.getCode()));
+        }
+    }
+
+    @Test
+    public void concurrentRequestsShareOneCatalog() throws Exception {
+        final Locale locale = new Locale("nl", "BE");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<FlagCatalog>> futures
+                    = new ArrayList<Future<FlagCatalog>>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(new Callable<FlagCatalog>() {
+                    @Override
+                    public FlagCatalog call() {
+                        return FlagCatalog.of(locale);
+                    }
+                }));
+            }
+            FlagCatalog catalog = FlagCatalog.of(new Locale("nl"));
+            for (Future<FlagCatalog> future : futures) {
+                assertSame(catalog, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
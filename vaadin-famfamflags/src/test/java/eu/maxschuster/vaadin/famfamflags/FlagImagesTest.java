@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.FutureTask;
+import javax.imageio.ImageIO;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the decoding and caching of the {@link FlagImages}.
+ *
+ * @author Max Schuster
+ */
+public class FlagImagesTest {
+
+    @Test
+    public void imagesAreArgbIcons() {
+        BufferedImage image = FlagImages.getImage(FamFamFlags.FINLAND);
+        assertEquals(BufferedImage.TYPE_INT_ARGB, image.getType());
+        assertEquals(16, image.getWidth());
+        assertEquals(11, image.getHeight());
+        assertEquals(16, FlagImages.getWidth(FamFamFlags.FINLAND));
+        assertEquals(11, FlagImages.getHeight(FamFamFlags.FINLAND));
+        assertArrayEquals(FlagImages.getArgb(FamFamFlags.FINLAND),
+                image.getRGB(0, 0, 16, 11, null, 0, 16));
+    }
+
+    @Test
+    public void repeatedCallsUseTheCachedIcon() {
+        FamFamFlags flag = FamFamFlags.SWEDEN;
+        int[] argb = FlagImages.getArgb(flag);
+        FutureTask<?> task = FlagImages.CACHE.get(flag.getCountry());
+        assertNotNull(task);
+        assertTrue(task.isDone());
+        BufferedImage first = FlagImages.getImage(flag);
+        BufferedImage second = FlagImages.getImage(flag);
+        assertSame(task, FlagImages.CACHE.get(flag.getCountry()));
+        // Callers get copies they may modify
+        assertNotSame(first, second);
+        first.setRGB(0, 0, 0);
+        argb[1] = 0;
+        assertArrayEquals(second.getRGB(0, 0, 16, 11, null, 0, 16),
+                FlagImages.getArgb(flag));
+    }
+
+    @Test
+    public void writtenPngsDecodeToTheSamePixels() throws IOException {
+        for (FamFamFlags flag : new FamFamFlags[]{FamFamFlags.GERMANY,
+            FamFamFlags.EUROPEANUNION, FamFamFlags.CATALONIA}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            FlagImages.writePng(flag, out);
+            assertArrayEquals(FlagImages.getPng(flag), out.toByteArray());
+            BufferedImage decoded = ImageIO.read(
+                    new ByteArrayInputStream(out.toByteArray()));
+            int width = decoded.getWidth();
+            int height = decoded.getHeight();
+            assertEquals(FlagImages.getWidth(flag), width);
+            assertEquals(FlagImages.getHeight(flag), height);
+            assertArrayEquals(flag.getCountry(), FlagImages.getArgb(flag),
+                    decoded.getRGB(0, 0, width, height, null, 0, width));
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void unknownFlagsFail() {
+        FlagImages.getImage(null);
+    }
+
+}
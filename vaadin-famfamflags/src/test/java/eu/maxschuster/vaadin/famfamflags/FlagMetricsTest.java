@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the {@link FlagMetrics} against the platform MBean server.
+ *
+ * @author Max Schuster
+ */
+public class FlagMetricsTest {
+
+    private static final String TEST_NAME
+            = FlagMetrics.OBJECT_NAME + ",test=FlagMetricsTest";
+
+    private final MBeanServer server
+            = ManagementFactory.getPlatformMBeanServer();
+
+    @After
+    public void disable() {
+        FlagMetrics.disable();
+        FlagMetrics.getInstance().reset();
+    }
+
+    @Test
+    public void countsHitsAndMissesBySlot() throws Exception {
+        FlagMetrics.enable(TEST_NAME);
+        FlagMetrics metrics = FlagMetrics.getInstance();
+        metrics.reset();
+        FamFamFlags.fromCountry("FI");
+        FamFamFlags.fromCountry("FI");
+        FamFamFlags.fromCountryIgnoreCase("de");
+        FamFamFlags.fromLocale(Locale.GERMANY);
+        FamFamFlags.fromCountry("ENGLAND");
+        FamFamFlags.fromCountry("AQ");
+        FamFamFlags.fromCountry("NOPE");
+
+        Map<String, Long> hits = new HashMap<String, Long>();
+        hits.put("FI", 2L);
+        hits.put("DE", 2L);
+        hits.put("ENGLAND", 1L);
+        assertEquals(hits, metrics.getResolutionsByFlag());
+        Map<String, Long> misses = new HashMap<String, Long>();
+        misses.put("AQ", 1L);
+        misses.put(FlagMetrics.OTHER_CODES, 1L);
+        assertEquals(misses, metrics.getMissesByCode());
+        assertEquals(5L, metrics.getHitCount());
+        assertEquals(2L, metrics.getMissCount());
+        assertEquals(7L, metrics.getLookupCount());
+
+        ObjectName name = new ObjectName(TEST_NAME);
+        assertEquals(5L, server.getAttribute(name, "HitCount"));
+        assertEquals(true, server.getAttribute(name, "Enabled"));
+    }
+
+    @Test
+    public void disabledLookupsAreNotCounted() throws Exception {
+        FlagMetrics.enable(TEST_NAME);
+        FlagMetrics.getInstance().reset();
+        FlagMetrics.disable();
+        FamFamFlags.fromCountry("FI");
+        assertEquals(0L, FlagMetrics.getInstance().getLookupCount());
+        assertFalse(server.isRegistered(new ObjectName(TEST_NAME)));
+    }
+
+    @Test
+    public void enableMovesTheRegistration() throws Exception {
+        FlagMetrics.enable();
+        FlagMetrics.enable(TEST_NAME);
+        assertFalse(server.isRegistered(
+                new ObjectName(FlagMetrics.OBJECT_NAME)));
+        assertTrue(server.isRegistered(new ObjectName(TEST_NAME)));
+    }
+
+    @Test
+    public void takenNamesAreNeitherUsedNorUnregistered() throws Exception {
+        ObjectName name = new ObjectName(FlagMetrics.OBJECT_NAME);
+        server.registerMBean(new Foreign(), name);
+        try {
+            try {
+                FlagMetrics.enable();
+                fail("The taken name was used");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            FlagMetrics.disable();
+            assertTrue(server.isRegistered(name));
+            assertEquals(42, server.getAttribute(name, "Answer"));
+
+            // Moving our own registration away doesn't touch it either
+            FlagMetrics.enable(TEST_NAME);
+            FlagMetrics.disable();
+            assertTrue(server.isRegistered(name));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    /**
+     * The MXBean of another application.
+     */
+    public interface ForeignMXBean {
+
+        int getAnswer();
+
+    }
+
+    /**
+     * Registered by another application under the default name.
+     */
+    public static class Foreign implements ForeignMXBean {
+
+        @Override
+        public int getAnswer() {
+            return 42;
+        }
+
+    }
+
+}
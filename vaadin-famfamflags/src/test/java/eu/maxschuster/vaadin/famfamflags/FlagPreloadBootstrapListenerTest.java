@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import com.vaadin.server.BootstrapHandler;
+import com.vaadin.server.BootstrapPageResponse;
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.shared.ApplicationConstants;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import static org.junit.Assert.*;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the preload hints of the {@link FlagPreloadBootstrapListener}.
+ *
+ * @author Max Schuster
+ */
+public class FlagPreloadBootstrapListenerTest {
+
+    /**
+     * The static file location of the mocked service
+     */
+    private static final String STATIC = "/static";
+
+    private Document document;
+
+    private BootstrapPageResponse response;
+
+    @Before
+    public void setUp() throws Exception {
+        final VaadinService service = new VaadinServletService(
+                new VaadinServlet(),
+                new DefaultDeploymentConfiguration(getClass(),
+                        new Properties())) {
+                    @Override
+                    public String getStaticFileLocation(
+                            VaadinRequest request) {
+                        return STATIC;
+                    }
+                };
+        VaadinRequest request = (VaadinRequest) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{VaadinRequest.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method m,
+                            Object[] args) {
+                        if (m.getName().equals("getService")) {
+                            return service;
+                        }
+                        throw new UnsupportedOperationException(m.getName());
+                    }
+                });
+        BootstrapHandler handler = new BootstrapHandler() {
+            @Override
+            protected String getServiceUrl(BootstrapContext context) {
+                return null;
+            }
+        };
+        document = Document.createShell("");
+        response = new BootstrapPageResponse(handler, request, null, null,
+                document, new HashMap<String, Object>(), null);
+    }
+
+    @Test
+    public void linksPointAtTheSpriteAndTheFlags() {
+        new FlagPreloadBootstrapListener(true, FamFamFlags.FINLAND,
+                FamFamFlags.GERMANY.disabled()).modifyBootstrapPage(response);
+        List<Element> links = preloads();
+        assertEquals(4, links.size());
+        assertLink(links.get(0), FamFamFlags.SPRITE_STYLESHEET, "style",
+                "text/css");
+        assertLink(links.get(1), FamFamFlags.SPRITE_IMAGE, "image",
+                "image/png");
+        assertLink(links.get(2), FamFamFlags.FINLAND.getURL(), "image",
+                "image/png");
+        assertLink(links.get(3), FamFamFlags.GERMANY.disabled().getURL(),
+                "image", "image/png");
+        // The hashed file names the UI requests
+        assertTrue(links.get(2).attr("href").matches(
+                ".*/fi\\.[0-9a-f]{10}\\.png"));
+        assertTrue(links.get(3).attr("href").matches(
+                ".*/de-disabled\\.[0-9a-f]{10}\\.png"));
+    }
+
+    @Test
+    public void theSpriteIsOptional() {
+        new FlagPreloadBootstrapListener(false, FamFamFlags.FINLAND)
+                .modifyBootstrapPage(response);
+        List<Element> links = preloads();
+        assertEquals(1, links.size());
+        assertLink(links.get(0), FamFamFlags.FINLAND.getURL(), "image",
+                "image/png");
+    }
+
+    @Test
+    public void linksAreAddedOncePerPage() {
+        FlagPreloadBootstrapListener listener
+                = new FlagPreloadBootstrapListener(true, FamFamFlags.FINLAND,
+                        FamFamFlags.FINLAND);
+        listener.modifyBootstrapPage(response);
+        new FlagPreloadBootstrapListener(true, FamFamFlags.FINLAND,
+                FamFamFlags.SWEDEN).modifyBootstrapPage(response);
+        List<String> hrefs = new ArrayList<String>();
+        for (Element link : preloads()) {
+            assertFalse(link.attr("href"), hrefs.contains(link.attr("href")));
+            hrefs.add(link.attr("href"));
+        }
+        assertEquals(4, hrefs.size());
+    }
+
+    private List<Element> preloads() {
+        return document.head().select("link[rel=preload]");
+    }
+
+    private static void assertLink(Element link, String url, String as,
+            String type) {
+        assertEquals(STATIC + "/VAADIN/" + url.substring(
+                ApplicationConstants.VAADIN_PROTOCOL_PREFIX.length()),
+                link.attr("href"));
+        assertEquals(as, link.attr("as"));
+        assertEquals(type, link.attr("type"));
+    }
+
+}
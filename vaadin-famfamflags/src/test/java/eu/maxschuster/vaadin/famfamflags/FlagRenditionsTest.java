@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import javax.imageio.ImageIO;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the scaling and caching of the {@link FlagRenditions}.
+ *
+ * @author Max Schuster
+ */
+public class FlagRenditionsTest {
+
+    @Test
+    public void renditionsScaleEveryPixelToABlock() throws IOException {
+        for (FamFamFlags flag : new FamFamFlags[]{FamFamFlags.FINLAND,
+            FamFamFlags.EUROPEANUNION, FamFamFlags.NEPAL}) {
+            int width = FlagImages.getWidth(flag);
+            int height = FlagImages.getHeight(flag);
+            int[] argb = FlagImages.getArgb(flag);
+            for (int scale = 2; scale <= FlagRenditions.MAX_SCALE; scale++) {
+                byte[] png = FlagRenditions.getPng(flag, scale);
+                assertEquals(png.length,
+                        FlagRenditions.getLength(flag, scale));
+                BufferedImage image = ImageIO.read(
+                        new ByteArrayInputStream(png));
+                assertEquals(width * scale, image.getWidth());
+                assertEquals(height * scale, image.getHeight());
+                for (int y = 0; y < image.getHeight(); y++) {
+                    for (int x = 0; x < image.getWidth(); x++) {
+                        assertEquals(flag.getCountry() + " " + scale + "x",
+                                argb[y / scale * width + x / scale],
+                                image.getRGB(x, y));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void theSmallestScaleIsTheIcon() {
+        assertArrayEquals(FlagImages.getPng(FamFamFlags.GERMANY),
+                FlagRenditions.getPng(FamFamFlags.GERMANY,
+                        FlagRenditions.MIN_SCALE));
+        assertEquals(FlagStore.getETag(FamFamFlags.GERMANY),
+                FlagRenditions.getETag(FamFamFlags.GERMANY,
+                        FlagRenditions.MIN_SCALE));
+    }
+
+    @Test
+    public void unsupportedScalesAreRejected() {
+        for (int scale : new int[]{-1, FlagRenditions.MIN_SCALE - 1,
+            FlagRenditions.MAX_SCALE + 1}) {
+            assertFalse(FlagRenditions.isSupported(scale));
+            try {
+                FlagRenditions.getPng(FamFamFlags.FINLAND, scale);
+                fail("Accepted scale " + scale);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void failuresAreNotCached() {
+        FamFamFlags flag = FamFamFlags.SWITZERLAND;
+        Integer key = FlagRenditions.key(flag, 3);
+        FutureTask<FlagRenditions.Rendition> failed
+                = new FutureTask<FlagRenditions.Rendition>(
+                        new Callable<FlagRenditions.Rendition>() {
+                            @Override
+                            public FlagRenditions.Rendition call()
+                                    throws IOException {
+                                throw new IOException("Broken");
+                            }
+                        });
+        failed.run();
+        assertSame(failed, FlagRenditions.CACHE.putIfAbsent(key, failed));
+        try {
+            FlagRenditions.getPng(flag, 3);
+            fail("Served a failed rendition");
+        } catch (IllegalStateException e) {
+            assertEquals("Broken", e.getCause().getMessage());
+        }
+        assertNull(FlagRenditions.CACHE.get(key));
+        // The next request creates the rendition
+        byte[] png = FlagRenditions.getPng(flag, 3);
+        assertEquals(png.length, FlagRenditions.getLength(flag, 3));
+        assertNotNull(FlagRenditions.CACHE.get(key));
+    }
+
+}
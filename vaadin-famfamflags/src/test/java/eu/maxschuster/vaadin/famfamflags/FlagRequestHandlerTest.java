@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+import org.junit.Test;
+
+/**
+ * Tests the HTTP handling of the {@link FlagRequestHandler}.
+ *
+ * @author Max Schuster
+ */
+public class FlagRequestHandlerTest {
+
+    private static final FamFamFlags FLAG = FamFamFlags.FINLAND;
+
+    private static final String HASH = FlagManifest.getHash("FI");
+
+    private final Map<String, Object> requestHeaders
+            = new HashMap<String, Object>();
+
+    private final Map<String, Object> responseHeaders
+            = new HashMap<String, Object>();
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    private String method = "GET";
+
+    private int status;
+
+    @Test
+    public void currentHashIsCachedForever() throws Exception {
+        assertTrue(handle("fi." + HASH + ".png"));
+        assertEquals(200, status);
+        assertEquals(FlagRequestHandler.CACHE_CONTROL,
+                responseHeaders.get("Cache-Control"));
+        assertEquals(FlagRenditions.getETag(FLAG, 1),
+                responseHeaders.get("ETag"));
+        assertEquals(FlagResources.MIME_TYPE,
+                responseHeaders.get("Content-Type"));
+        assertEquals(String.valueOf(FlagStore.getLength(FLAG)),
+                responseHeaders.get("Content-Length"));
+        assertArrayEquals(FlagImages.getPng(FLAG), body.toByteArray());
+    }
+
+    @Test
+    public void unversionedUrlIsRevalidated() throws Exception {
+        assertTrue(handle("fi.png"));
+        assertEquals(200, status);
+        assertEquals(FlagRequestHandler.REVALIDATE_CACHE_CONTROL,
+                responseHeaders.get("Cache-Control"));
+    }
+
+    @Test
+    public void staleHashIsRevalidated() throws Exception {
+        assertTrue(handle("fi.0000000000.png"));
+        assertEquals(200, status);
+        assertEquals(FlagRequestHandler.REVALIDATE_CACHE_CONTROL,
+                responseHeaders.get("Cache-Control"));
+        assertArrayEquals(FlagImages.getPng(FLAG), body.toByteArray());
+    }
+
+    @Test
+    public void renditionsAreServed() throws Exception {
+        assertTrue(handle("fi@2x." + HASH + ".png"));
+        assertEquals(200, status);
+        assertEquals(FlagRequestHandler.CACHE_CONTROL,
+                responseHeaders.get("Cache-Control"));
+        assertEquals(FlagRenditions.getETag(FLAG, 2),
+                responseHeaders.get("ETag"));
+        assertArrayEquals(FlagRenditions.getPng(FLAG, 2), body.toByteArray());
+    }
+
+    @Test
+    public void headRequestHasNoBody() throws Exception {
+        method = "HEAD";
+        assertTrue(handle("fi.png"));
+        assertEquals(200, status);
+        assertEquals(String.valueOf(FlagStore.getLength(FLAG)),
+                responseHeaders.get("Content-Length"));
+        assertEquals(0, body.size());
+    }
+
+    @Test
+    public void matchingETagIsNotModified() throws Exception {
+        String eTag = FlagRenditions.getETag(FLAG, 1);
+        requestHeaders.put("If-None-Match", eTag);
+        assertTrue(handle("fi." + HASH + ".png"));
+        assertEquals(304, status);
+        assertEquals(0, body.size());
+        assertEquals(FlagRequestHandler.CACHE_CONTROL,
+                responseHeaders.get("Cache-Control"));
+    }
+
+    @Test
+    public void weakETagIsNotModified() throws Exception {
+        requestHeaders.put("If-None-Match",
+                "\"other\", W/" + FlagRenditions.getETag(FLAG, 1));
+        assertTrue(handle("fi.png"));
+        assertEquals(304, status);
+        assertEquals(0, body.size());
+    }
+
+    @Test
+    public void otherETagIsServed() throws Exception {
+        requestHeaders.put("If-None-Match", "\"other\", W/\"other\"");
+        // If-None-Match takes precedence over If-Modified-Since
+        requestHeaders.put("If-Modified-Since", Long.MAX_VALUE);
+        assertTrue(handle("fi.png"));
+        assertEquals(200, status);
+        assertArrayEquals(FlagImages.getPng(FLAG), body.toByteArray());
+    }
+
+    @Test
+    public void ifModifiedSinceIsChecked() throws Exception {
+        long lastModified = FlagStore.getLastModified(FLAG);
+        assumeTrue(lastModified != 0);
+        assertTrue(handle("fi.png"));
+        assertEquals(lastModified, responseHeaders.get("Last-Modified"));
+        requestHeaders.put("If-Modified-Since", lastModified);
+        assertTrue(handle("fi.png"));
+        assertEquals(304, status);
+        requestHeaders.put("If-Modified-Since", lastModified - 1000);
+        assertTrue(handle("fi.png"));
+        assertEquals(200, status);
+    }
+
+    @Test
+    public void unknownFlagsAndScalesAreNotFound() throws Exception {
+        for (String name : new String[]{"qq.png", "qq." + HASH + ".png",
+            "fi@1x.png", "fi@5x.png", "fi@2.png", "fi@.png"}) {
+            status = 0;
+            assertTrue(name, handle(name));
+            assertEquals(name, 404, status);
+            assertEquals(name, 0, body.size());
+        }
+    }
+
+    @Test
+    public void otherPathsAreIgnored() throws Exception {
+        assertFalse(handlePath(null));
+        assertFalse(handlePath("/APP/other/fi.png"));
+        assertFalse(handlePath("/" + FlagRequestHandler.PATH + "fi.gif"));
+        assertEquals(0, status);
+    }
+
+    private boolean handle(String fileName) throws IOException {
+        return handlePath("/" + FlagRequestHandler.PATH + fileName);
+    }
+
+    private boolean handlePath(final String pathInfo) throws IOException {
+        body.reset();
+        VaadinRequest request = (VaadinRequest) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{VaadinRequest.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method m,
+                            Object[] args) {
+                        String name = m.getName();
+                        if (name.equals("getPathInfo")) {
+                            return pathInfo;
+                        } else if (name.equals("getMethod")) {
+                            return method;
+                        } else if (name.equals("getHeader")) {
+                            Object value = requestHeaders.get(args[0]);
+                            return value != null ? value.toString() : null;
+                        } else if (name.equals("getDateHeader")) {
+                            Object value = requestHeaders.get(args[0]);
+                            return value != null ? value : -1L;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+        VaadinResponse response = (VaadinResponse) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{VaadinResponse.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method m,
+                            Object[] args) {
+                        String name = m.getName();
+                        if (name.equals("setStatus")
+                                || name.equals("sendError")) {
+                            status = (Integer) args[0];
+                        } else if (name.equals("setHeader")
+                                || name.equals("setDateHeader")) {
+                            responseHeaders.put((String) args[0], args[1]);
+                        } else if (name.equals("setContentType")) {
+                            responseHeaders.put("Content-Type", args[0]);
+                        } else if (name.equals("getOutputStream")) {
+                            return body;
+                        } else {
+                            throw new UnsupportedOperationException(name);
+                        }
+                        return null;
+                    }
+                });
+        return new FlagRequestHandler().handleRequest(null, request, response);
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the ranking of the {@link FlagSearchIndex}.
+ *
+ * @author Max Schuster
+ */
+public class FlagSearchIndexTest {
+
+    private final FlagSearchIndex index = FlagSearchIndex.of(Locale.ENGLISH);
+
+    @Test
+    public void exactMatchesComeFirst() {
+        // "UK" is an alias of the United Kingdom, Ukraine only starts with it
+        assertEquals(Arrays.asList(FamFamFlags.UNITED_KINGDOM,
+                FamFamFlags.UKRAINE), flags(index.search("uk")));
+        // "FI" is the code of Finland
+        assertEquals(Arrays.asList(FamFamFlags.FINLAND, FamFamFlags.FIJI),
+                flags(index.search("fi")));
+    }
+
+    @Test
+    public void namePrefixesComeBeforeSubstrings() {
+        List<FamFamFlags> flags = flags(index.search("ger"));
+        assertEquals(FamFamFlags.GERMANY, flags.get(0));
+        assertTrue(flags.contains(FamFamFlags.NIGER));
+        assertTrue(flags.contains(FamFamFlags.NIGERIA));
+        assertTrue(flags.contains(FamFamFlags.ALGERIA));
+    }
+
+    @Test
+    public void namePrefixesComeBeforeWordPrefixes() {
+        List<FamFamFlags> flags = flags(index.search("guinea"));
+        assertEquals(Arrays.asList(FamFamFlags.GUINEA,
+                FamFamFlags.GUINEABISSAU), flags.subList(0, 2));
+        assertTrue(flags.indexOf(FamFamFlags.EQUATORIAL_GUINEA) > 1);
+        assertTrue(flags.indexOf(FamFamFlags.PAPUA_NEW_GUINEA) > 1);
+    }
+
+    @Test
+    public void equalRanksAreOrderedByName() {
+        assertEquals(Arrays.asList(FamFamFlags.UNITED_ARAB_EMIRATES,
+                FamFamFlags.UNITED_KINGDOM, FamFamFlags.UNITED_STATES),
+                flags(index.search("united")));
+    }
+
+    @Test
+    public void aliasesAndEnglishNamesAreFound() {
+        assertEquals(Arrays.asList(FamFamFlags.NETHERLANDS),
+                flags(index.search("Holland")));
+        assertEquals(FamFamFlags.GERMANY, flags(FlagSearchIndex.of(
+                Locale.GERMAN).search("germany")).get(0));
+    }
+
+    @Test
+    public void queriesAreNormalized() {
+        assertEquals("cote d ivoire",
+                FlagSearchIndex.normalize("  C\u00f4te d'Ivoire!! "));
+        assertEquals("strasse", FlagSearchIndex.normalize("Stra\u00dfe"));
+        assertEquals(Arrays.asList(FamFamFlags.COTE_DIVOIRE),
+                flags(index.search("COTE D'IVOIRE")));
+    }
+
+    @Test
+    public void limitAndCountMatchTheResults() {
+        assertEquals(index.search("land").size(), index.count("land"));
+        assertEquals(3, index.search("land", 3).size());
+        assertEquals(FamFamFlags.getFlags().size(), index.count(""));
+        assertEquals(FamFamFlags.getFlags().size(), index.search(null).size());
+        assertTrue(index.search("zzz").isEmpty());
+        assertEquals(0, index.count("zzz"));
+    }
+
+    private static List<FamFamFlags> flags(List<FlagCatalog.Entry> entries) {
+        List<FamFamFlags> flags = new ArrayList<FamFamFlags>(entries.size());
+        for (FlagCatalog.Entry entry : entries) {
+            flags.add(entry.getFlag());
+        }
+        return flags;
+    }
+
+}
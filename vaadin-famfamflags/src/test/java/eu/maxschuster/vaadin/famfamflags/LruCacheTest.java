@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the {@link LruCache}.
+ *
+ * @author Max Schuster
+ */
+public class LruCacheTest {
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntry() {
+        LruCache<String, String> cache = new LruCache<String, String>(2);
+        cache.putIfAbsent("a", "1");
+        cache.putIfAbsent("b", "2");
+        cache.get("a");
+        cache.putIfAbsent("c", "3");
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void keepsTheFirstValue() {
+        LruCache<String, String> cache = new LruCache<String, String>(2);
+        assertEquals("1", cache.putIfAbsent("a", "1"));
+        assertEquals("1", cache.putIfAbsent("a", "2"));
+    }
+
+    @Test
+    public void removesOnlyTheExpectedValue() {
+        LruCache<String, String> cache = new LruCache<String, String>(2);
+        cache.putIfAbsent("a", "1");
+        assertFalse(cache.remove("a", "2"));
+        assertEquals("1", cache.get("a"));
+        assertTrue(cache.remove("a", "1"));
+        assertNull(cache.get("a"));
+        assertFalse(cache.remove("a", "1"));
+    }
+
+}
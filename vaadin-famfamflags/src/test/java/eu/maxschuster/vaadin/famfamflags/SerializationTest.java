@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags;
+
+import com.vaadin.server.ExternalResource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the serialized forms of the flag resources.
+ *
+ * @author Max Schuster
+ */
+public class SerializationTest {
+
+    /**
+     * Upper bound of the serialized size of a single flag resource.
+     */
+    private static final int MAX_SIZE = 512;
+
+    @Test
+    public void flagsResolveToTheConstants() throws Exception {
+        for (FamFamFlags flag : FamFamFlags.getFlags()) {
+            assertSame(flag, roundTrip(flag));
+        }
+    }
+
+    @Test
+    public void inlineFlagsResolveToTheCachedInstances() throws Exception {
+        InlineFlag flag = InlineFlag.of(FamFamFlags.FINLAND);
+        assertSame(flag, roundTrip(flag));
+    }
+
+    @Test
+    public void variantsResolveToTheFlagVariants() throws Exception {
+        for (FlagVariant.Type type : FlagVariant.Type.values()) {
+            FlagVariant variant = FamFamFlags.FINLAND.getVariant(type);
+            assertSame(variant, roundTrip(variant));
+        }
+    }
+
+    @Test
+    public void variantsAreSingletons() throws Exception {
+        for (FamFamFlags flag : FamFamFlags.getFlags()) {
+            FlagVariant disabled = flag.disabled();
+            assertSame(disabled, flag.disabled());
+            assertSame(disabled, flag.getVariant(FlagVariant.Type.DISABLED));
+            assertSame(disabled, roundTrip(disabled));
+            assertSame(flag.translucent(), roundTrip(flag.translucent()));
+        }
+    }
+
+    @Test
+    public void flagsAreSmallerThanPlainResources() throws Exception {
+        FamFamFlags flag = FamFamFlags.EUROPEANUNION;
+        int size = serialize(flag).length;
+        assertTrue("Serialized size " + size, size < MAX_SIZE);
+        assertTrue("Serialized size " + size, size < serialize(
+                new ExternalResource(flag.getURL(), flag.getMIMEType()))
+                .length);
+    }
+
+    @Test
+    public void inlineFlagsDontContainTheirData() throws Exception {
+        int size = serialize(InlineFlag.of(FamFamFlags.FINLAND)).length;
+        assertTrue("Serialized size " + size, size < MAX_SIZE);
+    }
+
+    @Test
+    public void variantsAreSmall() throws Exception {
+        int size = serialize(FamFamFlags.FINLAND.disabled()).length;
+        assertTrue("Serialized size " + size, size < MAX_SIZE);
+    }
+
+    @Test
+    public void repeatedFlagsAreBackReferences() throws Exception {
+        List<FamFamFlags> flags = new ArrayList<FamFamFlags>();
+        for (int i = 0; i < 1000; i++) {
+            flags.add(FamFamFlags.FINLAND);
+        }
+        int size = serialize(flags).length;
+        // About 5 bytes per back reference
+        assertTrue("Serialized size " + size, size < MAX_SIZE + 1000 * 8);
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static Object roundTrip(Object object) throws Exception {
+        ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(serialize(object)));
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+}
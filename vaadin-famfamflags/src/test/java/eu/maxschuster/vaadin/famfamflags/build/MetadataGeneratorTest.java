@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.build;
+
+import eu.maxschuster.vaadin.famfamflags.FamFamFlags;
+import eu.maxschuster.vaadin.famfamflags.FlagImages;
+import eu.maxschuster.vaadin.famfamflags.FlagMetadata;
+import eu.maxschuster.vaadin.famfamflags.FlagStore;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests that the generated metadata matches the bundled icons.
+ *
+ * @author Max Schuster
+ */
+public class MetadataGeneratorTest {
+
+    /**
+     * The original icons
+     */
+    private static final File ORIGINALS
+            = new File("src/main/resources/VAADIN/addons/famfamflags");
+
+    @Test
+    public void everyEntryMatchesItsIcon() throws IOException {
+        Properties metadata = load();
+        assertEquals(FlagFile.list(ORIGINALS).size(), metadata.size());
+        for (String country : metadata.stringPropertyNames()) {
+            FamFamFlags flag = FamFamFlags.fromCountry(country);
+            assertNotNull(country, flag);
+            String[] fields = metadata.getProperty(country).split(",");
+            assertEquals(country, 6, fields.length);
+            int[] argb = FlagImages.getArgb(flag);
+            String hash = ManifestGenerator.hash(FlagImages.getPng(flag));
+            assertEquals(country, FlagImages.getWidth(flag),
+                    Integer.parseInt(fields[0]));
+            assertEquals(country, FlagImages.getHeight(flag),
+                    Integer.parseInt(fields[1]));
+            assertEquals(country, FlagStore.getLength(flag),
+                    Integer.parseInt(fields[2]));
+            assertEquals(country, hash, fields[3]);
+            // The manifest names the file by the same hash
+            assertTrue(country, flag.getURL().endsWith(
+                    "." + hash + ".png"));
+            assertEquals(country, MetadataGenerator.dominantColor(argb),
+                    Integer.parseInt(fields[4], 16));
+            assertEquals(country, MetadataGenerator.averageColor(argb),
+                    Integer.parseInt(fields[5], 16));
+        }
+    }
+
+    @Test
+    public void flagsExposeTheirEntries() throws IOException {
+        Properties metadata = load();
+        for (String country : metadata.stringPropertyNames()) {
+            FlagMetadata expected = FamFamFlags.fromCountry(country)
+                    .getMetadata();
+            assertNotNull(country, expected);
+            String[] fields = metadata.getProperty(country).split(",");
+            assertEquals(fields[0] + "x" + fields[1] + ", " + fields[2]
+                    + " bytes, " + fields[3] + ", #" + fields[4] + ", #"
+                    + fields[5], expected.toString());
+        }
+    }
+
+    private static Properties load() throws IOException {
+        InputStream in = FlagMetadata.class.getResourceAsStream(
+                "metadata.properties");
+        assertNotNull("metadata.properties", in);
+        Properties properties = new Properties();
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        return properties;
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.famfamflags.build;
+
+import eu.maxschuster.vaadin.famfamflags.FamFamFlags;
+import eu.maxschuster.vaadin.famfamflags.FlagImages;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import javax.imageio.ImageIO;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link PngOptimizer} is lossless.
+ *
+ * @author Max Schuster
+ */
+public class PngOptimizerTest {
+
+    /**
+     * The original icons
+     */
+    private static final File ORIGINALS
+            = new File("src/main/resources/VAADIN/addons/famfamflags");
+
+    @Test
+    public void optimizedIconsHaveTheOriginalPixels() throws IOException {
+        List<FlagFile> flags = FlagFile.list(ORIGINALS);
+        assertFalse(flags.isEmpty());
+        for (FlagFile flag : flags) {
+            byte[] original = ManifestGenerator.readFile(flag.getFile());
+            byte[] optimized = PngOptimizer.optimize(original);
+            assertTrue(flag.getName(), optimized.length <= original.length);
+            assertSamePixels(flag.getName(), original, optimized);
+        }
+    }
+
+    @Test
+    public void bundledIconsHaveTheOriginalPixels() throws IOException {
+        for (FlagFile flag : FlagFile.list(ORIGINALS)) {
+            FamFamFlags bundled = FamFamFlags.fromCountry(
+                    flag.getName().toUpperCase(Locale.US));
+            assertNotNull(flag.getName(), bundled);
+            assertSamePixels(flag.getName(),
+                    ManifestGenerator.readFile(flag.getFile()),
+                    FlagImages.getPng(bundled));
+        }
+    }
+
+    private static void assertSamePixels(String name, byte[] expected,
+            byte[] actual) throws IOException {
+        BufferedImage a = ImageIO.read(new ByteArrayInputStream(expected));
+        BufferedImage b = ImageIO.read(new ByteArrayInputStream(actual));
+        int width = a.getWidth();
+        int height = a.getHeight();
+        assertEquals(name, width, b.getWidth());
+        assertEquals(name, height, b.getHeight());
+        assertArrayEquals(name, a.getRGB(0, 0, width, height, null, 0, width),
+                b.getRGB(0, 0, width, height, null, 0, width));
+    }
+
+}